@@ -18,7 +18,12 @@ import io.quarkus.runtime.StartupEvent;
 import io.radanalytics.operator.common.AbstractOperator;
 import io.radanalytics.operator.common.AnsiColors;
 import io.radanalytics.operator.common.EntityInfo;
+import io.radanalytics.operator.common.LeaderElection;
 import io.radanalytics.operator.common.OperatorConfig;
+import io.radanalytics.operator.common.OperatorExecutors;
+import io.radanalytics.operator.common.ReconcileContext;
+import io.radanalytics.operator.common.ReconciliationScheduler;
+import io.radanalytics.operator.common.ShardManager;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -39,15 +44,15 @@ import java.net.URL;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static io.radanalytics.operator.common.AnsiColors.*;
 import static io.radanalytics.operator.common.OperatorConfig.ALL_NAMESPACES;
 import static io.radanalytics.operator.common.OperatorConfig.SAME_NAMESPACE;
-import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
  * Entry point class that watches on StartupEvent and should bootstrap all the registered operators
@@ -56,11 +61,13 @@ import static java.util.concurrent.TimeUnit.SECONDS;
  */
 @ApplicationScoped
 public class SDKEntrypoint {
-    private static ExecutorService executors;
 
     protected OperatorConfig config;
     protected KubernetesClient client;
     protected boolean isOpenShift;
+    protected ReconciliationScheduler reconciliationScheduler;
+    protected LeaderElection leaderElection;
+    protected ShardManager shardManager;
 
     @Inject
     private Logger log;
@@ -82,21 +89,54 @@ public class SDKEntrypoint {
     @PostConstruct
     void init(){
         config = OperatorConfig.fromMap(System.getenv());
+        OperatorExecutors.init(config.getExecutorMode(), config.getExecutorPoolSize());
+        reconciliationScheduler = new ReconciliationScheduler(config.getFullReconciliationConcurrency());
         client = new DefaultKubernetesClient();
         checkIfOnOpenshift();
+        String leaseNamespace = Optional.ofNullable(client.getNamespace()).orElse("default");
+        String identity = Optional.ofNullable(System.getenv("HOSTNAME")).orElse(UUID.randomUUID().toString());
+        if (config.getSharding() != ShardManager.Mode.NONE) {
+            shardManager = new ShardManager(client, config.getSharding(), leaseNamespace, config.getShardingGroup(),
+                    identity, Duration.ofSeconds(config.getShardingLeaseDurationS()));
+            if (config.isLeaderElection()) {
+                log.warn("Leader election is ignored, with sharding all the replicas reconcile their part of the resources");
+            }
+        } else if (config.isLeaderElection()) {
+            leaderElection = new LeaderElection(client, leaseNamespace, config.getLeaderElectionLeaseName(), identity,
+                    Duration.ofSeconds(config.getLeaderElectionLeaseDurationS()));
+        }
     }
 
     void onStop(@Observes ShutdownEvent event) {
+        log.info("Stopping..");
+        if (leaderElection != null) {
+            leaderElection.stop();
+        }
+        if (shardManager != null) {
+            shardManager.stop();
+        }
+        OperatorExecutors.get().shutdown(config.getOperationTimeoutMs());
         log.info("Stopped");
     }
 
     public void onStart(@Observes StartupEvent event) {
         log.info("Starting..");
+        if (shardManager != null) {
+            shardManager.start();
+        }
         CompletableFuture<Void> future = run().exceptionally(ex -> {
             log.error("Unable to start operator for one or more namespaces", ex);
             System.exit(1);
             return null;
         });
+        if (leaderElection != null) {
+            // the standbys start the operators too, so that their caches are warm, but they don't reconcile
+            leaderElection.start(() -> log.info("{}{}{} is the leader now, reconciling", gr(),
+                    leaderElection.getIdentity(), xx()), () -> {
+                log.error("Leadership lost, exiting so that the replica restarts as a standby");
+                System.exit(1);
+            });
+        }
         if (config.isMetrics()) {
             CompletableFuture<Optional<HTTPServer>> maybeMetricServer = future.thenCompose(s -> runMetrics());
         }
@@ -114,19 +154,21 @@ public class SDKEntrypoint {
         if (operators != null) {
             if (SAME_NAMESPACE.equals(config.getNamespaces().iterator().next())) { // current namespace
                 String namespace = client.getNamespace();
-                CompletableFuture future = runForNamespace(isOpenShift, namespace, config.getReconciliationIntervalS(), 0);
+                CompletableFuture future = runForNamespace(isOpenShift, namespace, null, config.getReconciliationIntervalS());
                 futures.add(future);
             } else {
                 if (ALL_NAMESPACES.equals(config.getNamespaces().iterator().next())) {
-                    CompletableFuture future = runForNamespace(isOpenShift, ALL_NAMESPACES, config.getReconciliationIntervalS(), 0);
+                    CompletableFuture future = runForNamespace(isOpenShift, ALL_NAMESPACES, null, config.getReconciliationIntervalS());
+                    futures.add(future);
+                } else if (config.getNamespaces().size() == 1) {
+                    String namespace = config.getNamespaces().iterator().next();
+                    CompletableFuture future = runForNamespace(isOpenShift, namespace, null, config.getReconciliationIntervalS());
                     futures.add(future);
                 } else {
-                    Iterator<String> ns;
-                    int i;
-                    for (ns = config.getNamespaces().iterator(), i = 0; i < config.getNamespaces().size(); i++) {
-                        CompletableFuture future = runForNamespace(isOpenShift, ns.next(), config.getReconciliationIntervalS(), i);
-                        futures.add(future);
-                    }
+                    // one cluster-wide watch per operator filtered to the namespaces instead of a watch per namespace
+                    CompletableFuture future = runForNamespace(isOpenShift, ALL_NAMESPACES, config.getNamespaces(),
+                            config.getReconciliationIntervalS());
+                    futures.add(future);
                 }
             }
         }
@@ -150,7 +192,8 @@ public class SDKEntrypoint {
         return CompletableFuture.supplyAsync(() -> maybeServer);
     }
 
-    private CompletableFuture<Void> runForNamespace(boolean isOpenShift, String namespace, long reconInterval, int delay) {
+    private CompletableFuture<Void> runForNamespace(boolean isOpenShift, String namespace, Set<String> watchedNamespaces,
+                                                    long reconInterval) {
         List<AbstractOperator<? extends EntityInfo>> operatorList = operators.stream().collect(Collectors.toList());
 
         if (operatorList.isEmpty()) {
@@ -158,9 +201,7 @@ public class SDKEntrypoint {
         }
 
         List<Future> futures = new ArrayList<>();
-        final int operatorNumber = operatorList.size();
-        IntStream.range(0, operatorNumber).forEach(operatorIndex -> {
-            AbstractOperator operator = operatorList.get(operatorIndex);
+        operatorList.forEach(operator -> {
             if (!AbstractOperator.class.isAssignableFrom(operator.getClass())) {
                 log.error("Class {} annotated with @Operator doesn't extend the AbstractOperator", operator.getClass());
                 return; // do not fail
@@ -172,8 +213,15 @@ public class SDKEntrypoint {
             }
 
             operator.setClient(client);
+            operator.setConfig(config);
             operator.setNamespace(namespace);
+            operator.setWatchedNamespaces(watchedNamespaces);
             operator.setOpenshift(isOpenShift);
+            if (shardManager != null) {
+                operator.setShardManager(shardManager);
+                // reconcile the resources taken over from the replicas that have left
+                shardManager.addRebalanceListener(operator::requestReconciliation);
+            }
 
             CompletableFuture<Watch> future = operator.start().thenApply(res -> {
                 log.info("{} started in namespace {}", operator.getName(), namespace);
@@ -184,26 +232,47 @@ public class SDKEntrypoint {
                 return null;
             });
 
-            ScheduledExecutorService s = Executors.newScheduledThreadPool(1);
-            int realDelay = (delay * operatorNumber) + operatorIndex + 2;
-            ScheduledFuture<?> scheduledFuture =
-                    s.scheduleAtFixedRate(() -> {
-                        try {
-                            operator.fullReconciliation();
-                            operator.setFullReconciliationRun(true);
-                        } catch (Throwable t) {
-                            log.warn("error during full reconciliation: {}", t.getMessage());
-                            t.printStackTrace();
-                        }
-                    }, realDelay, reconInterval, SECONDS);
-            log.info("full reconciliation for {} scheduled (periodically each {} seconds)", operator.getName(), reconInterval);
-            log.info("the first full reconciliation for {} is happening in {} seconds", operator.getName(), realDelay);
+            // the sweeps of all the operators and namespaces share one scheduler that spreads them across the interval
+            List<ReconciliationScheduler.Registration> registrations = new ArrayList<>();
+            BooleanSupplier ready = () -> operator.hasSynced() && isLeader()
+                    && (shardManager == null || shardManager.isReady());
+            long incrementalInterval = config.getIncrementalReconciliationIntervalS();
+            for (String ns : operator.getWatchedNamespaces()) {
+                ReconcileContext context = operator.context(ns);
+                registrations.add(reconciliationScheduler.register(operator.getName() + "@" + ns, reconInterval,
+                        ready, () -> runFullReconciliation(operator, context)));
+                if (operator.isIncremental() && incrementalInterval > 0) {
+                    // only the entities that have changed, the full reconciliation above is the safety net
+                    reconciliationScheduler.register(operator.getName() + "@" + ns + " (changes)", incrementalInterval,
+                            () -> ready.getAsBoolean() && operator.isFullReconciliationRun(),
+                            () -> operator.reconcileChanges(context));
+                }
+            }
+            operator.setReconciliationTrigger(() -> registrations.forEach(ReconciliationScheduler.Registration::requestNow));
+            log.info("full reconciliation for {} scheduled in {} namespace(s) (periodically each ~{} seconds)",
+                    operator.getName(), registrations.size(), reconInterval);
 
             futures.add(future);
         });
         return CompletableFuture.allOf(futures.toArray(new CompletableFuture[]{}));
     }
 
+    /**
+     * @return true if this replica should reconcile, i.e. the leader election is disabled or this replica is the leader
+     */
+    public boolean isLeader() {
+        return leaderElection == null || leaderElection.isLeader();
+    }
+
+    private void runFullReconciliation(AbstractOperator<? extends EntityInfo> operator, ReconcileContext context) {
+        try {
+            operator.fullReconciliation(context);
+        } finally {
+            // even a failed reconciliation releases the buffered events, they must not wait for the next one
+            operator.fullReconciliationDone(context);
+        }
+    }
+
     private void checkIfOnOpenshift() {
         try {
             URL kubernetesApi = client.getMasterUrl();
@@ -273,7 +342,20 @@ public class SDKEntrypoint {
                 OperatorConfig.METRICS_JVM,
                 OperatorConfig.METRICS_PORT,
                 OperatorConfig.FULL_RECONCILIATION_INTERVAL_S,
-                OperatorConfig.OPERATOR_OPERATION_TIMEOUT_MS
+                OperatorConfig.OPERATOR_OPERATION_TIMEOUT_MS,
+                OperatorConfig.CACHE_RESYNC_INTERVAL_S,
+                OperatorConfig.RECONCILE_CONCURRENCY,
+                OperatorConfig.EXECUTOR_MODE,
+                OperatorConfig.EXECUTOR_POOL_SIZE,
+                OperatorConfig.FULL_RECONCILIATION_CONCURRENCY,
+                OperatorConfig.FULL_RECONCILIATION_PARALLELISM,
+                OperatorConfig.LEADER_ELECTION,
+                OperatorConfig.LEADER_ELECTION_LEASE_NAME,
+                OperatorConfig.LEADER_ELECTION_LEASE_DURATION_S,
+                OperatorConfig.INCREMENTAL_RECONCILIATION_INTERVAL_S,
+                OperatorConfig.SHARDING,
+                OperatorConfig.SHARDING_GROUP,
+                OperatorConfig.SHARDING_LEASE_DURATION_S
         ));
         values.addAll(Arrays.asList(gitSha, version,
                 Optional.ofNullable(System.getenv().get("CRD")).orElse("true"),
@@ -283,7 +365,20 @@ public class SDKEntrypoint {
                 String.valueOf(config.isMetricsJvm()),
                 String.valueOf(config.getMetricsPort()),
                 String.valueOf(config.getReconciliationIntervalS()),
-                String.valueOf(config.getOperationTimeoutMs())
+                String.valueOf(config.getOperationTimeoutMs()),
+                String.valueOf(config.getCacheResyncIntervalS()),
+                String.valueOf(config.getReconcileConcurrency()),
+                String.valueOf(OperatorExecutors.get().getMode()),
+                String.valueOf(config.getExecutorPoolSize()),
+                String.valueOf(config.getFullReconciliationConcurrency()),
+                String.valueOf(config.getFullReconciliationParallelism()),
+                String.valueOf(config.isLeaderElection()),
+                config.getLeaderElectionLeaseName(),
+                String.valueOf(config.getLeaderElectionLeaseDurationS()),
+                String.valueOf(config.getIncrementalReconciliationIntervalS()),
+                String.valueOf(config.getSharding()),
+                config.getShardingGroup(),
+                String.valueOf(config.getShardingLeaseDurationS())
         ));
 
         Gauge.build()
@@ -301,11 +396,11 @@ public class SDKEntrypoint {
         rootLogger.addAppender(metricsLogAppender);
     }
 
+    /**
+     * @return executor for the blocking operations, see {@link OperatorExecutors#blocking()}
+     */
     public static ExecutorService getExecutors() {
-        if (null == executors) {
-            executors = Executors.newFixedThreadPool(10);
-        }
-        return executors;
+        return OperatorExecutors.get().blocking();
     }
 
     public boolean isOpenShift() {
@@ -2,30 +2,27 @@ package io.radanalytics.operator.common;
 
 import io.fabric8.kubernetes.client.*;
 import io.fabric8.kubernetes.api.model.ConfigMap;
-import io.fabric8.kubernetes.api.model.ConfigMapList;
-import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
+import io.fabric8.kubernetes.api.model.OwnerReference;
 import io.fabric8.kubernetes.api.model.apiextensions.v1.CustomResourceDefinition;
-import io.fabric8.kubernetes.api.model.apiextensions.v1.CustomResourceDefinitionList;
-import io.fabric8.kubernetes.client.dsl.FilterWatchListMultiDeletable;
-import io.fabric8.kubernetes.client.dsl.MixedOperation;
-import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
 import io.radanalytics.operator.common.crd.CrdDeployer;
 import io.radanalytics.operator.common.crd.InfoClass;
 import io.radanalytics.operator.common.crd.InfoStatus;
-import io.radanalytics.operator.common.crd.InfoList;
 import io.radanalytics.operator.resource.LabelsHelper;
+import io.radanalytics.operator.resource.OwnerReferenceHelper;
 import org.slf4j.Logger;
 
+import java.util.Collections;
 import java.util.Date;
 import javax.inject.Inject;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static io.radanalytics.operator.common.OperatorConfig.ALL_NAMESPACES;
 
@@ -47,10 +44,13 @@ public abstract class AbstractOperator<T extends EntityInfo> {
     @Inject
     private CrdDeployer crdDeployer;
 
-    // client, isOpenshift and namespace are being set in the SDKEntrypoint from the context
+    // client, config, isOpenshift and namespace are being set in the SDKEntrypoint from the context
     protected KubernetesClient client;
+    protected OperatorConfig config;
     protected boolean isOpenshift;
     protected String namespace;
+    // if not null, the operator watches these namespaces using one cluster-wide watch and namespace is "*"
+    protected Set<String> watchedNamespaces;
 
     // these fields can be directly set from languages that don't support annotations, like JS
     protected String entityName;
@@ -66,12 +66,20 @@ public abstract class AbstractOperator<T extends EntityInfo> {
     protected String[] additionalPrinterColumnTypes;
 
     protected volatile boolean fullReconciliationRun = false;
+    // entities changed since the last reconciliation, it's created in start()
+    protected volatile ChangeLog changes;
 
     private Map<String, String> selector;
     private String operatorName;
     private CustomResourceDefinition crd;
 
-    private volatile AbstractWatcher watch;
+    private volatile AbstractWatcher<T> watch;
+    private final Object allNamespacesLock = new Object();
+    private volatile Runnable reconciliationTrigger;
+    private volatile ShardManager shardManager;
+    private volatile StatusWriter statusWriter;
+    private final Map<String, ReconcileContext> contexts = new ConcurrentHashMap<>();
+    private final Set<String> reconciledNamespaces = ConcurrentHashMap.newKeySet();
 
     public AbstractOperator() {
         Operator annotation = getClass().getAnnotation(Operator.class);
@@ -98,25 +106,39 @@ public abstract class AbstractOperator<T extends EntityInfo> {
      * a new entity of type T. This method is called when the config map or custom resource with given
      * type is created.
      * The common use-case would be creating some new resources in the
-     * Kubernetes cluster (using @see this.client), like replication controllers with pod specifications
+     * Kubernetes cluster (using the client from the context), like replication controllers with pod specifications
      * and custom images and settings. But one can do arbitrary work here, like calling external APIs, etc.
      *
+     * The handlers are called from several reconcile workers, so the events from different namespaces (and for
+     * different resources) are handled concurrently. Everything that depends on the namespace should be taken from
+     * the context, not from the fields of the operator.
+     *
      * @param entity      entity that represents the config map (or CR) that has just been created.
      *                    The type of the entity is passed as a type parameter to this class.
+     *                    The instance is shared with the conversion cache, so it must not be modified.
+     * @param context     immutable context with the namespace of the entity
      */
-    abstract protected void onAdd(T entity);
+    protected abstract void onAdd(T entity, ReconcileContext context);
 
     /**
-     * Override this method if you want to manually handle the case when it watches for the events in the all
-     * namespaces (<code>WATCH_NAMESPACE="*"</code>).
+     * Kept for backward compatibility, the namespace is taken from the <code>namespace</code> field.
      *
+     * @param entity      entity that represents the config map (or CR) that has just been created.
+     * @deprecated use {@link #onAdd(EntityInfo, ReconcileContext)} instead
+     */
+    @Deprecated
+    protected void onAdd(T entity) {
+        onAdd(entity, context(namespace));
+    }
+
+    /**
+     * Kept for backward compatibility, override {@link #onAdd(EntityInfo, ReconcileContext)} instead.
      *
      * @param entity     entity that represents the config map (or CR) that has just been created.
-     *      *            The type of the entity is passed as a type parameter to this class.
      * @param namespace  namespace in which the resources should be created.
      */
     protected void onAdd(T entity, String namespace) {
-        onAction(entity, namespace, this::onAdd);
+        onAdd(entity, context(namespace));
     }
 
     /**
@@ -124,62 +146,86 @@ public abstract class AbstractOperator<T extends EntityInfo> {
      * The method is called when the corresponding config map or custom resource is deleted in the Kubernetes cluster.
      * Some suggestion what to do here would be: cleaning the resources, deleting some resources in K8s, etc.
      *
-     * @param entity      entity that represents the config map or custom resource that has just been created.
+     * @param entity      entity that represents the config map or custom resource that has just been deleted.
      *                    The type of the entity is passed as a type parameter to this class.
+     * @param context     immutable context with the namespace of the entity
      */
-    abstract protected void onDelete(T entity);
-
+    protected abstract void onDelete(T entity, ReconcileContext context);
 
     /**
-     * Override this method if you want to manually handle the case when it watches for the events in the all
-     * namespaces (<code>WATCH_NAMESPACE="*"</code>).
+     * Kept for backward compatibility, the namespace is taken from the <code>namespace</code> field.
      *
+     * @param entity      entity that represents the config map or custom resource that has just been deleted.
+     * @deprecated use {@link #onDelete(EntityInfo, ReconcileContext)} instead
+     */
+    @Deprecated
+    protected void onDelete(T entity) {
+        onDelete(entity, context(namespace));
+    }
+
+    /**
+     * Kept for backward compatibility, override {@link #onDelete(EntityInfo, ReconcileContext)} instead.
      *
-     * @param entity     entity that represents the config map (or CR) that has just been created.
-     *      *            The type of the entity is passed as a type parameter to this class.
-     * @param namespace  namespace in which the resources should be created.
+     * @param entity     entity that represents the config map (or CR) that has just been deleted.
+     * @param namespace  namespace in which the resources should be deleted.
      */
     protected void onDelete(T entity, String namespace) {
-        onAction(entity, namespace, this::onDelete);
+        onDelete(entity, context(namespace));
     }
 
     /**
      * It's called when one modifies the configmap of type 'T' (that passes <code>isSupported</code> check) or custom resource.
      * If this method is not overriden, the implicit behavior is calling <code>onDelete</code> and <code>onAdd</code>.
      *
-     * @param entity      entity that represents the config map or custom resource that has just been created.
+     * @param entity      entity that represents the config map or custom resource that has just been modified.
      *                    The type of the entity is passed as a type parameter to this class.
+     * @param context     immutable context with the namespace of the entity
      */
-    protected void onModify(T entity) {
-        onDelete(entity);
-        onAdd(entity);
+    protected void onModify(T entity, ReconcileContext context) {
+        inNamespace(context.getNamespace(), () -> onModify(entity));
     }
 
     /**
-     * Override this method if you want to manually handle the case when it watches for the events in the all
-     * namespaces (<code>WATCH_NAMESPACE="*"</code>).
+     * Handler of the modification for the operators that don't use the {@link ReconcileContext}. If this method is
+     * not overriden, the implicit behavior is calling <code>onDelete</code> and <code>onAdd</code>.
      *
+     * @param entity      entity that represents the config map or custom resource that has just been modified.
+     * @deprecated override {@link #onModify(EntityInfo, ReconcileContext)} instead
+     */
+    @Deprecated
+    protected void onModify(T entity) {
+        ReconcileContext context = context(namespace);
+        onDelete(entity, context);
+        onAdd(entity, context);
+    }
+
+    /**
+     * Kept for backward compatibility, override {@link #onModify(EntityInfo, ReconcileContext)} instead.
      *
-     * @param entity     entity that represents the config map (or CR) that has just been created.
-     *      *            The type of the entity is passed as a type parameter to this class.
-     * @param namespace  namespace in which the resources should be created.
+     * @param entity     entity that represents the config map (or CR) that has just been modified.
+     * @param namespace  namespace in which the resources should be modified.
      */
     protected void onModify(T entity, String namespace) {
-        onAction(entity, namespace, this::onModify);
+        onModify(entity, context(namespace));
     }
 
-    private void onAction(T entity, String namespace, Consumer<T> handler) {
+    /**
+     * Runs the action of an operator that still reads the <code>namespace</code> field. If it watches more
+     * namespaces, the field is set to the given namespace for the time of the call, so such calls can't run in
+     * parallel. The operators using the {@link ReconcileContext} never get here.
+     */
+    private void inNamespace(String namespace, Runnable action) {
         if (ALL_NAMESPACES.equals(this.namespace)) {
-            //synchronized (this.watch) { // events from the watch should be serialized (1 thread)
-            try {
-                this.namespace = namespace;
-                handler.accept(entity);
-            } finally {
-                this.namespace = ALL_NAMESPACES;
+            synchronized (allNamespacesLock) {
+                try {
+                    this.namespace = namespace;
+                    action.run();
+                } finally {
+                    this.namespace = ALL_NAMESPACES;
+                }
             }
-            //}
         } else {
-            handler.accept(entity);
+            action.run();
         }
     }
 
@@ -197,6 +243,42 @@ public abstract class AbstractOperator<T extends EntityInfo> {
         // no-op by default
     }
 
+    /**
+     * Full reconciliation of one of the watched namespaces. Override this method (instead of
+     * <code>fullReconciliation()</code>) if the operator watches several namespaces and the namespaces should be
+     * reconciled concurrently. By default it calls <code>fullReconciliation()</code> with the <code>namespace</code>
+     * field set to the reconciled namespace.
+     *
+     * @param context context of the reconciled namespace
+     */
+    public void fullReconciliation(ReconcileContext context) {
+        if (context.getNamespace().equals(namespace)) {
+            fullReconciliation();
+        } else {
+            inNamespace(context.getNamespace(), this::fullReconciliation);
+        }
+    }
+
+    /**
+     * Incremental reconciliation of the entities that have changed since the last run, see {@link ChangeLog}. It's
+     * run often (each <code>INCREMENTAL_RECONCILIATION_INTERVAL_S</code>) for the operators that return true from
+     * {@link #isIncremental()}, while the full reconciliation can run rarely as a safety net. The changes of the
+     * operator's own resources are logged automatically, the changes of the resources it has created should be
+     * logged by the operator, e.g. from an {@link #informer(String, FilterWatchListDeletable)} listener.
+     *
+     * @param context context of the reconciled namespace
+     */
+    public void reconcileChanges(ReconcileContext context) {
+        // no-op by default
+    }
+
+    /**
+     * @return true if the operator implements {@link #reconcileChanges(ReconcileContext)}
+     */
+    public boolean isIncremental() {
+        return false;
+    }
+
     /**
      * Implicitly only those configmaps with given prefix and kind are being watched, but you can provide additional
      * 'deep' checking in here.
@@ -245,6 +327,10 @@ public abstract class AbstractOperator<T extends EntityInfo> {
      */
     public CompletableFuture<? extends AbstractWatcher> start() {
         initInternals();
+        this.changes = new ChangeLog(entityName);
+        if (isCrd) {
+            this.statusWriter = new StatusWriter(client, entityName);
+        }
         this.selector = LabelsHelper.forKind(entityName, prefix);
         boolean ok = checkIntegrity();
         if (!ok) {
@@ -295,7 +381,15 @@ public abstract class AbstractOperator<T extends EntityInfo> {
                     .withOnAdd(this::onAdd)
                     .withOnDelete(this::onDelete)
                     .withOnModify(this::onModify)
+                    .withResyncInterval(getCacheResyncIntervalS())
+                    .withConcurrency(getReconcileConcurrency())
+                    .withNamespaces(watchedNamespaces)
                     .build();
+            crWatcher.setOnWatchRestart(this::requestReconciliation);
+            crWatcher.setOnChange(changes::mark);
+            if (shardManager != null) {
+                crWatcher.setOwnership(this::isOwned);
+            }
             future = crWatcher.watch();
         } else {
             ConfigMapWatcher.Builder<T> cmBuilder = new ConfigMapWatcher.Builder<>();
@@ -308,7 +402,15 @@ public abstract class AbstractOperator<T extends EntityInfo> {
                     .withOnDelete(this::onDelete)
                     .withOnModify(this::onModify)
                     .withPredicate(this::isSupported)
+                    .withResyncInterval(getCacheResyncIntervalS())
+                    .withConcurrency(getReconcileConcurrency())
+                    .withNamespaces(watchedNamespaces)
                     .build();
+            cmWatcher.setOnWatchRestart(this::requestReconciliation);
+            cmWatcher.setOnChange(changes::mark);
+            if (shardManager != null) {
+                cmWatcher.setOwnership(this::isOwned);
+            }
             future = cmWatcher.watch();
         }
         return future;
@@ -348,6 +450,9 @@ public abstract class AbstractOperator<T extends EntityInfo> {
 
     public void stop() {
         log.info("Stopping {} for namespace {}", operatorName, namespace);
+        if (statusWriter != null) {
+            statusWriter.close();
+        }
         watch.close();
         client.close();
     }
@@ -358,65 +463,208 @@ public abstract class AbstractOperator<T extends EntityInfo> {
      * should also override this method and call it from <code>fullReconciliation()</code> to ensure that the real state
      * is the same as the desired state.
      *
+     * The desired state is read from the informer's cache, so this method doesn't call the Kubernetes API.
+     *
      * @return returns the set of 'T's that correspond to the CMs or CRs that have been created in the K8s
      */
     protected Set<T> getDesiredSet() {
-        Set<T> desiredSet;
-        if (isCrd) {
-            MixedOperation<InfoClass, InfoList, Resource<InfoClass>> aux1 =
-                    client.resources(InfoClass.class, InfoList.class);
-            FilterWatchListMultiDeletable<InfoClass, InfoList> aux2 =
-                    "*".equals(namespace) ? aux1.inAnyNamespace() : aux1.inNamespace(namespace);
-            CustomResourceList<InfoClass> listAux = aux2.list();
-            List<InfoClass> items = listAux.getItems();
-            desiredSet = items.stream().flatMap(item -> {
-                try {
-                    return Stream.of(convertCr(item));
-                } catch (Exception e) {
-                    // ignore this CR
-                    return Stream.empty();
-                }
-            }).collect(Collectors.toSet());
-        } else {
-            MixedOperation<ConfigMap, ConfigMapList, Resource<ConfigMap>> aux1 =
-                    client.configMaps();
-            FilterWatchListMultiDeletable<ConfigMap, ConfigMapList> aux2 =
-                    "*".equals(namespace) ? aux1.inAnyNamespace() : aux1.inNamespace(namespace);
-            desiredSet = aux2.withLabels(selector)
-                    .list()
-                    .getItems()
-                    .stream()
-                    .flatMap(item -> {
-                        try {
-                            return Stream.of(convert(item));
-                        } catch (Exception e) {
-                            // ignore this CM
-                            return Stream.empty();
-                        }
-                    }).collect(Collectors.toSet());
+        return new HashSet<>(watch.listDesired(namespace));
+    }
+
+    /**
+     * @param context context of the reconciled namespace
+     * @return the desired state in the namespace of the context, see {@link #getDesiredSet()}
+     */
+    protected Set<T> getDesiredSet(ReconcileContext context) {
+        return new HashSet<>(watch.listDesired(context.getNamespace()));
+    }
+
+    /**
+     * @param context context of the namespace
+     * @param name    name of the entity
+     * @return the desired state of one entity from the informer's cache or null, see {@link #getDesiredSet()}
+     */
+    protected T getDesired(ReconcileContext context, String name) {
+        return watch.getDesired(context.getNamespace(), name);
+    }
+
+    /**
+     * Hands a change found by a reconciliation to the reconcile workers, as if it came from the watch, so the handlers
+     * for one entity never run concurrently and the change is ordered with the watch events. Before the first full
+     * reconciliation the workers are idle (the events are buffered), so the handler is called right away.
+     *
+     * @param action  ADDED, MODIFIED or DELETED
+     * @param entity  the desired state, or an entity with just the name for DELETED
+     * @param context context of the entity's namespace
+     */
+    protected void reconcileEntity(Watcher.Action action, T entity, ReconcileContext context) {
+        if (fullReconciliationRun) {
+            watch.enqueue(action, entity, context.getNamespace());
+            return;
+        }
+        switch (action) {
+            case ADDED:
+                onAdd(entity, context);
+                break;
+            case DELETED:
+                onDelete(entity, context);
+                break;
+            default:
+                onModify(entity, context);
         }
-        return desiredSet;
+    }
+
+    /**
+     * Reference to the custom resource of the entity that should be set as the owner of all the resources created
+     * for it (see {@link OwnerReferenceHelper}). Once the custom resource is deleted, its resources are garbage
+     * collected by Kubernetes, so <code>onDelete</code> doesn't have to delete them.
+     *
+     * @param namespace namespace of the entity
+     * @param name      name of the entity
+     * @return owner reference or null in the config map mode (or if the custom resource isn't cached anymore), then
+     * the resources have to be deleted by their labels
+     */
+    protected OwnerReference getOwnerReference(String namespace, String name) {
+        AbstractWatcher<T> w = watch;
+        InfoClass cr = isCrd && w != null ? w.getCustomResource(namespace, name) : null;
+        if (cr == null || cr.getMetadata() == null || cr.getMetadata().getUid() == null
+                || cr.getApiVersion() == null || cr.getKind() == null) {
+            return null;
+        }
+        return OwnerReferenceHelper.controller(cr.getApiVersion(), cr.getKind(), cr.getMetadata().getName(),
+                cr.getMetadata().getUid());
+    }
+
+    /**
+     * Creates an informer for additional resources the concrete operator is interested in (for instance the resources
+     * it has created). The returned informer is not started.
+     *
+     * @param kind      name of the watched kind used for logging
+     * @param operation filtered operation, e.g. <code>client.pods().inNamespace(ns).withLabels(labels)</code>
+     * @param <R>       type of the watched resource
+     * @return new informer that shares the resync interval with the operator's own informer, restarts of its watch
+     * trigger the full reconciliation and only the watched namespaces are cached
+     */
+    protected <R extends HasMetadata> ResourceInformer<R> informer(String kind, FilterWatchListDeletable operation) {
+        return informer(kind, namespace, operation);
+    }
+
+    /**
+     * @param kind      name of the watched kind used for logging
+     * @param namespace namespace the operation is scoped to, used for logging
+     * @param operation filtered operation, e.g. <code>client.pods().inNamespace(ns).withLabels(labels)</code>
+     * @param <R>       type of the watched resource
+     * @return new informer, see {@link #informer(String, FilterWatchListDeletable)}
+     */
+    protected <R extends HasMetadata> ResourceInformer<R> informer(String kind, String namespace,
+                                                                   FilterWatchListDeletable operation) {
+        ResourceInformer<R> informer = new ResourceInformer<R>(kind, namespace,
+                ResourceInformer.listerWatcher(operation), getCacheResyncIntervalS())
+                .addRestartListener(this::requestReconciliation);
+        final Set<String> watched = watchedNamespaces;
+        if (watched != null) {
+            informer.withFilter(r -> watched.contains(r.getMetadata().getNamespace()));
+        }
+        return informer;
+    }
+
+    /**
+     * @return namespaces whose resources this operator handles, <code>"*"</code> stands for all of them
+     */
+    public Set<String> getWatchedNamespaces() {
+        return watchedNamespaces != null ? watchedNamespaces : Collections.singleton(namespace);
+    }
+
+    /**
+     * @param namespace one of the watched namespaces
+     * @return context of the namespace, it's the same instance for all the reconciliations of the namespace
+     */
+    public ReconcileContext context(String namespace) {
+        return contexts.computeIfAbsent(namespace, ns -> new ReconcileContext(ns, client, log));
+    }
+
+    /**
+     * Tells whether this replica reconciles the given entity. Without sharding it's always true, otherwise the
+     * operator should skip the resources of the entities owned by the other replicas in its full reconciliation
+     * (the desired set contains only the owned entities already).
+     *
+     * @param namespace namespace of the entity
+     * @param name      name of the entity
+     * @return true if this replica is responsible for the entity
+     */
+    public boolean isOwned(String namespace, String name) {
+        ShardManager shards = shardManager;
+        return shards == null || shards.owns(namespace, name);
+    }
+
+    /**
+     * Asks for a full reconciliation out of the regular schedule, e.g. because some events might have been missed.
+     * Concurrent requests are coalesced, so it's cheap to call it often.
+     */
+    public void requestReconciliation() {
+        Runnable trigger = reconciliationTrigger;
+        if (trigger != null) {
+            log.info("requesting immediate full reconciliation for {} in namespace {}", operatorName, namespace);
+            trigger.run();
+        }
+    }
+
+    /**
+     * Override this method if the full reconciliation depends also on other informers.
+     *
+     * @return true if the caches have been filled and the full reconciliation can safely rely on them
+     */
+    public boolean hasSynced() {
+        return watch != null && watch.hasSynced();
+    }
+
+    private long getCacheResyncIntervalS() {
+        return config == null ? OperatorConfig.DEFAULT_CACHE_RESYNC_INTERVAL_S : config.getCacheResyncIntervalS();
+    }
+
+    private int getReconcileConcurrency() {
+        return config == null ? OperatorConfig.DEFAULT_RECONCILE_CONCURRENCY : config.getReconcileConcurrency();
+    }
+
+    /**
+     * @return how many namespaces one full reconciliation of all the namespaces may process in parallel
+     */
+    protected int getFullReconciliationParallelism() {
+        return config == null ? OperatorConfig.DEFAULT_FULL_RECONCILIATION_PARALLELISM :
+                config.getFullReconciliationParallelism();
     }
 
     /**
      * Sets the 'state' field in the status block of the CR identified by namespace and name.
-     * The status block in the CR has another component 'lastTransitionTime' which is set
-     * automatically. Note, this only works for custom resource watchers, it has no effect for configmap watchers.
+     * The status block in the CR has other components 'lastTransitionTime' and 'observedGeneration' which are set
+     * automatically, 'observedGeneration' is the generation of the event the handler is reacting on.
+     * Note, this only works for custom resource watchers, it has no effect for configmap watchers.
+     *
+     * The status is written asynchronously by the {@link StatusWriter}, so this method doesn't block and doesn't
+     * fail. When the state changes several times before it's written, only the latest one is sent.
      *
      * @param status          String value that will be assigned to the 'state' field in the CR status block
      * @param namespace       The namespace holding the CR to update
      * @param name            The name of the CR to update
      **/
     protected void setCRStatus(String status, String namespace, String name) {
-        if (isCrd) {
-            MixedOperation<InfoClass, InfoList, Resource<InfoClass>> crclient =
-                    client.resources(InfoClass.class, InfoList.class);
-
-            InfoClass cr = crclient.inNamespace(namespace).withName(name).get();
-            if (cr != null) {
-                cr.setStatus(new InfoStatus(status, new Date()));
-                crclient.inNamespace(namespace).withName(name).updateStatus(cr);
+        StatusWriter writer = statusWriter;
+        if (isCrd && writer != null) {
+            AbstractWatcher<T> w = watch;
+            InfoClass cached = w == null ? null : w.getCustomResource(namespace, name);
+            // only the status (and what identifies the CR) is sent
+            InfoClass patch = new InfoClass();
+            patch.setMetadata(new ObjectMetaBuilder().withName(name).withNamespace(namespace).build());
+            if (cached != null) {
+                patch.setApiVersion(cached.getApiVersion());
+                patch.setKind(cached.getKind());
             }
+            // the generation that has been reconciled, not the cached one, the spec may have been changed in the
+            // meantime. Outside of an event it's not known and observedGeneration is left as it is.
+            Long generation = w == null ? null : w.getHandledGeneration(namespace, name);
+            // the MODIFIED event caused by this update will be skipped by the watcher
+            patch.setStatus(new InfoStatus(status, new Date(), generation));
+            writer.submit(patch);
         }
     }
 
@@ -424,6 +672,10 @@ public abstract class AbstractOperator<T extends EntityInfo> {
         this.client = client;
     }
 
+    public void setConfig(OperatorConfig config) {
+        this.config = config;
+    }
+
     public void setOpenshift(boolean openshift) {
         isOpenshift = openshift;
     }
@@ -432,6 +684,14 @@ public abstract class AbstractOperator<T extends EntityInfo> {
         this.namespace = namespace;
     }
 
+    /**
+     * @param watchedNamespaces namespaces watched by one cluster-wide watch, the namespace should be <code>"*"</code>
+     */
+    public void setWatchedNamespaces(Set<String> watchedNamespaces) {
+        this.watchedNamespaces = watchedNamespaces == null ? null :
+                Collections.unmodifiableSet(new HashSet<>(watchedNamespaces));
+    }
+
     public void setEntityName(String entityName) {
         this.entityName = entityName;
     }
@@ -456,6 +716,39 @@ public abstract class AbstractOperator<T extends EntityInfo> {
         this.named = named;
     }
 
+    /**
+     * @param shardManager shard manager if the work is split among several replicas, it has to be set before
+     *                     {@link #start()}
+     */
+    public void setShardManager(ShardManager shardManager) {
+        this.shardManager = shardManager;
+    }
+
+    public void setReconciliationTrigger(Runnable reconciliationTrigger) {
+        this.reconciliationTrigger = reconciliationTrigger;
+    }
+
+    /**
+     * Records that the full reconciliation of the namespace has finished. Once all the watched namespaces have been
+     * reconciled, the buffered events are released, see {@link #setFullReconciliationRun(boolean)}.
+     *
+     * @param context context of the reconciled namespace
+     */
+    public void fullReconciliationDone(ReconcileContext context) {
+        reconciledNamespaces.add(context.getNamespace());
+        watch.updateShardMetrics();
+        if (!fullReconciliationRun && reconciledNamespaces.containsAll(getWatchedNamespaces())) {
+            setFullReconciliationRun(true);
+        }
+    }
+
+    /**
+     * @return true once the first full reconciliation of all the watched namespaces has finished
+     */
+    public boolean isFullReconciliationRun() {
+        return fullReconciliationRun;
+    }
+
     public void setFullReconciliationRun(boolean fullReconciliationRun) {
         this.fullReconciliationRun = fullReconciliationRun;
         this.watch.setFullReconciliationRun(true);
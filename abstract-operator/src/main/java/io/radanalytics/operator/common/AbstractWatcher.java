@@ -3,26 +3,35 @@ package io.radanalytics.operator.common;
 import io.fabric8.kubernetes.api.model.apiextensions.v1.CustomResourceDefinition;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapList;
-import io.fabric8.kubernetes.client.*;
+import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.client.KubernetesClient;
-import io.fabric8.kubernetes.client.KubernetesClientException;
-import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
-import io.fabric8.kubernetes.client.WatcherException;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.Resource;
-import io.fabric8.kubernetes.client.dsl.Watchable;
-import io.radanalytics.operator.SDKEntrypoint;
+import io.prometheus.client.Counter;
 import io.radanalytics.operator.common.crd.InfoClass;
 import io.radanalytics.operator.common.crd.InfoList;
+import io.radanalytics.operator.common.crd.InfoStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static io.radanalytics.operator.common.AnsiColors.*;
 
@@ -30,12 +39,21 @@ public abstract class AbstractWatcher<T extends EntityInfo> {
 
     protected static final Logger log = LoggerFactory.getLogger(AbstractWatcher.class.getName());
 
+    private static final Counter skippedEvents = Counter.build()
+            .name("operator_skipped_events_total")
+            .help("MODIFIED events that were dropped, because their generation had already been reconciled.")
+            .labelNames("kind")
+            .register();
+
     private final boolean isCrd;
     private final String namespace;
     private final String entityName;
     private final KubernetesClient client;
     private final CustomResourceDefinition crd;
     private final Map<String, String> selector;
+    private final long resyncIntervalS;
+    // if not null, only these namespaces are watched (using one cluster-wide watch)
+    private final Set<String> namespaces;
 
     private final BiConsumer<T, String> onAdd;
     private final BiConsumer<T, String> onDelete;
@@ -44,15 +62,32 @@ public abstract class AbstractWatcher<T extends EntityInfo> {
     private final Predicate<ConfigMap> isSupported;
     private final Function<ConfigMap, T> convert;
     private final Function<InfoClass, T> convertCr;
+    private final ConversionCache<T> conversions;
+
+    private final int concurrency;
+    private final WorkQueue<T> queue;
+    private final List<Thread> workers = new ArrayList<>();
+    // metadata.generation of the last successfully handled event for each custom resource
+    private final Map<String, Long> observedGenerations = new ConcurrentHashMap<>();
+    // generation of the event that is being handled for the key, there is at most one such event per key
+    private final Map<String, Long> handledGenerations = new ConcurrentHashMap<>();
 
-    private volatile Watch watch;
+    private volatile ResourceInformer<ConfigMap> cmInformer;
+    private volatile ResourceInformer<InfoClass> crInformer;
     protected volatile boolean fullReconciliationRun = false;
+    private volatile Map<String, String> startupSnapshot;
+    private volatile Runnable onWatchRestart;
+    // namespace, name -> whether this replica reconciles the resource, null if the work is not sharded
+    private volatile BiPredicate<String, String> ownership;
+    // namespace, name of each changed entity, e.g. for the incremental reconciliation
+    private volatile BiConsumer<String, String> onChange;
 
     // use via builder
     protected AbstractWatcher(boolean isCrd, String namespace, String entityName, KubernetesClient client,
                               CustomResourceDefinition crd, Map<String, String> selector, BiConsumer<T, String> onAdd,
                               BiConsumer<T, String> onDelete, BiConsumer<T, String> onModify, Predicate<ConfigMap> isSupported,
-                              Function<ConfigMap, T> convert, Function<InfoClass, T> convertCr) {
+                              Function<ConfigMap, T> convert, Function<InfoClass, T> convertCr, long resyncIntervalS,
+                              int concurrency, Set<String> namespaces) {
         this.isCrd = isCrd;
         this.namespace = namespace;
         this.entityName = entityName;
@@ -65,48 +100,41 @@ public abstract class AbstractWatcher<T extends EntityInfo> {
         this.isSupported = isSupported;
         this.convert = convert;
         this.convertCr = convertCr;
+        this.resyncIntervalS = resyncIntervalS;
+        this.concurrency = Math.max(1, concurrency);
+        this.namespaces = namespaces == null ? null : Collections.unmodifiableSet(new HashSet<>(namespaces));
+        this.queue = new WorkQueue<>(entityName);
+        // buffer the events until the first full reconciliation
+        this.queue.hold();
+        this.conversions = new ConversionCache<>(entityName);
     }
 
     public abstract CompletableFuture<? extends AbstractWatcher<T>> watch();
 
-    protected CompletableFuture<Watch> createConfigMapWatch() {
-        CompletableFuture<Watch> cf = CompletableFuture.supplyAsync(() -> {
-            MixedOperation<ConfigMap, ConfigMapList, Resource<ConfigMap>> aux = client.configMaps();
-
-            final boolean inAllNs = "*".equals(namespace);
-            Watchable<Watcher<ConfigMap>> watchable = inAllNs ? aux.inAnyNamespace().withLabels(selector) :
-                    aux.inNamespace(namespace).withLabels(selector);
-            Watch watch = watchable.watch(new Watcher<ConfigMap>() {
-                @Override
-                public void eventReceived(Action action, ConfigMap cm) {
-                    if (isSupported.test(cm)) {
-                        log.info("ConfigMap in namespace {} was {}\nCM:\n{}\n", namespace, action, cm);
-                        T entity = convert.apply(cm);
-                        if (entity == null) {
-                            log.error("something went wrong, unable to parse {} definition", entityName);
-                        }
-                        if (action.equals(Action.ERROR)) {
-                            log.error("Failed ConfigMap {} in namespace{} ", cm, namespace);
-                        } else {
-                            handleAction(action, entity, inAllNs ? cm.getMetadata().getNamespace() : namespace);
-                        }
-                    } else {
-                        log.error("Unknown CM kind: {}", cm.toString());
-                    }
-                }
+    protected CompletableFuture<ResourceInformer<ConfigMap>> createConfigMapWatch() {
+        MixedOperation<ConfigMap, ConfigMapList, Resource<ConfigMap>> aux = client.configMaps();
+        final boolean inAllNs = "*".equals(namespace);
+        FilterWatchListDeletable<ConfigMap, ConfigMapList> operation = inAllNs ? aux.inAnyNamespace().withLabels(selector) :
+                aux.inNamespace(namespace).withLabels(selector);
 
-                @Override
-                public void onClose(WatcherException e) {
-                    if (e != null) {
-                        log.error("Watcher closed with exception in namespace {}", namespace, e);
-                        recreateWatcher();
-                    } else {
-                        log.info("Watcher closed in namespace {}", namespace);
-                    }
+        startWorkers();
+        cmInformer = new ResourceInformer<ConfigMap>(entityName, namespace,
+                ResourceInformer.listerWatcher(operation), resyncIntervalS).addRestartListener(this::watchRestarted)
+                .withFilter(this::isWatched)
+                .addListener((action, cm) -> {
+            if (isSupported.test(cm)) {
+                log.info("ConfigMap in namespace {} was {}\nCM:\n{}\n", namespace, action, cm);
+                T entity = conversions.get(cm, convert);
+                if (entity == null) {
+                    log.error("something went wrong, unable to parse {} definition", entityName);
                 }
-            });
-            return watch;
-        }, SDKEntrypoint.getExecutors());
+                handleAction(action, entity, inAllNs ? cm.getMetadata().getNamespace() : namespace, null,
+                        cm.getMetadata().getResourceVersion(), cm.getMetadata().getUid());
+            } else {
+                log.error("Unknown CM kind: {}", cm.toString());
+            }
+        });
+        CompletableFuture<ResourceInformer<ConfigMap>> cf = cmInformer.start();
         cf.thenApply(w -> {
             log.info("ConfigMap watcher running for labels {}", selector);
             return w;
@@ -117,41 +145,36 @@ public abstract class AbstractWatcher<T extends EntityInfo> {
         return cf;
     }
 
-    protected CompletableFuture<Watch> createCustomResourceWatch() {
-        CompletableFuture<Watch> cf = CompletableFuture.supplyAsync(() -> {
-            MixedOperation<InfoClass, InfoList, Resource<InfoClass>> aux =
-                    client.resources(InfoClass.class, InfoList.class);
-
-            final boolean inAllNs = "*".equals(namespace);
-            Watchable<Watcher<InfoClass>> watchable = inAllNs ? aux.inAnyNamespace() : aux.inNamespace(namespace);
-            Watch watch = watchable.watch(new Watcher<InfoClass>() {
-                @Override
-                public void eventReceived(Action action, InfoClass info) {
-                    log.info("Custom resource in namespace {} was {}\nCR:\n{}", namespace, action, info);
-                    T entity = convertCr.apply(info);
-                    if (entity == null) {
-                        log.error("something went wrong, unable to parse {} definition", entityName);
-                    }
-                    if (action.equals(Action.ERROR)) {
-                        log.error("Failed Custom resource {} in namespace{} ", info, namespace);
-                    } else {
-                        handleAction(action, entity, inAllNs ? info.getMetadata().getNamespace() : namespace);
-                    }
-                }
+    protected CompletableFuture<ResourceInformer<InfoClass>> createCustomResourceWatch() {
+        MixedOperation<InfoClass, InfoList, Resource<InfoClass>> aux =
+                client.resources(InfoClass.class, InfoList.class);
+        final boolean inAllNs = "*".equals(namespace);
+        FilterWatchListDeletable<InfoClass, InfoList> operation = inAllNs ? aux.inAnyNamespace() : aux.inNamespace(namespace);
 
-                @Override
-                public void onClose(WatcherException e) {
-                    if (e != null) {
-                        log.error("Watcher closed with exception in namespace {}", namespace, e);
-                        recreateWatcher();
-                    } else {
-                        log.info("Watcher closed in namespace {}", namespace);
-                    }
-                }
-            });
-            AbstractWatcher.this.watch = watch;
-            return watch;
-        }, SDKEntrypoint.getExecutors());
+        startWorkers();
+        crInformer = new ResourceInformer<InfoClass>(entityName, namespace,
+                ResourceInformer.listerWatcher(operation), resyncIntervalS).addRestartListener(this::watchRestarted)
+                .withFilter(this::isWatched)
+                .addListener((action, info) -> {
+            String ns = inAllNs ? info.getMetadata().getNamespace() : namespace;
+            Long generation = info.getMetadata().getGeneration();
+            if (action == Watcher.Action.MODIFIED && isObserved(ResourceCache.key(ns, info.getMetadata().getName()),
+                    generation, info.getStatus())) {
+                // status-only or no-op change, typically caused by our own status update
+                log.debug("Skipping {} {} in namespace {}, generation {} has already been reconciled", entityName,
+                        info.getMetadata().getName(), ns, generation);
+                skippedEvents.labels(entityName).inc();
+                return;
+            }
+            log.info("Custom resource in namespace {} was {}\nCR:\n{}", namespace, action, info);
+            T entity = conversions.get(info, convertCr);
+            if (entity == null) {
+                log.error("something went wrong, unable to parse {} definition", entityName);
+            }
+            handleAction(action, entity, ns, generation, info.getMetadata().getResourceVersion(),
+                    info.getMetadata().getUid());
+        });
+        CompletableFuture<ResourceInformer<InfoClass>> cf = crInformer.start();
         cf.thenApply(w -> {
             log.info("CustomResource watcher running for kinds {}", entityName);
             return w;
@@ -162,60 +185,336 @@ public abstract class AbstractWatcher<T extends EntityInfo> {
         return cf;
     }
 
-    private void recreateWatcher() {
-        this.watch.close();
-        CompletableFuture<Watch> configMapWatch = isCrd ? createCustomResourceWatch() : createConfigMapWatch();
-        final String crdOrCm = isCrd ? "CustomResource" : "ConfigMap";
-        configMapWatch.thenApply(res -> {
-            log.info("{} watch recreated in namespace {}", crdOrCm, namespace);
-            this.watch = res;
-            return res;
-        }).exceptionally(e -> {
-            log.error("Failed to recreate {} watch in namespace {}", crdOrCm, namespace);
-            return null;
-        });
+    /**
+     * @param resource config map or custom resource
+     * @return true if the resource lives in one of the watched namespaces
+     */
+    public boolean isWatched(HasMetadata resource) {
+        return namespaces == null || namespaces.contains(resource.getMetadata().getNamespace());
     }
 
-    private void handleAction(Watcher.Action action, T entity, String ns) {
-        if (!fullReconciliationRun) {
+    /**
+     * @param onWatchRestart callback that is run each time the watch has been restarted, it should be set before
+     *                       {@link #watch()} is called
+     */
+    public void setOnWatchRestart(Runnable onWatchRestart) {
+        this.onWatchRestart = onWatchRestart;
+    }
+
+    /**
+     * @param ownership predicate on the namespace and name of the entity telling whether this replica reconciles it,
+     *                  the events for the other entities are dropped and they are not part of the desired state. It
+     *                  should be set before {@link #watch()} is called.
+     */
+    public void setOwnership(BiPredicate<String, String> ownership) {
+        this.ownership = ownership;
+    }
+
+    /**
+     * @param onChange called with the namespace and name of the entity on each event, even before the first full
+     *                 reconciliation (while the events are buffered). It should be set before {@link #watch()} is
+     *                 called and it must not block.
+     */
+    public void setOnChange(BiConsumer<String, String> onChange) {
+        this.onChange = onChange;
+    }
+
+    private boolean isOwned(String ns, T entity) {
+        BiPredicate<String, String> owns = ownership;
+        return owns == null || owns.test(ns, entity.getName());
+    }
+
+    private void watchRestarted() {
+        Runnable callback = onWatchRestart;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    /**
+     * @param key        namespace/name of the custom resource
+     * @param generation current metadata.generation of the custom resource
+     * @param status     current status of the custom resource
+     * @return true if the spec with this generation has already been reconciled
+     */
+    private boolean isObserved(String key, Long generation, InfoStatus status) {
+        if (generation == null) {
+            return false;
+        }
+        Long observed = observedGenerations.get(key);
+        if (observed == null && status != null) {
+            // after restart, fall back to what was recorded in the status
+            observed = status.getObservedGeneration();
+        }
+        return observed != null && generation <= observed;
+    }
+
+    private void handleAction(Watcher.Action action, T entity, String ns, Long generation, String resourceVersion,
+                              String uid) {
+        if (entity == null) {
+            return;
+        }
+        if (ownership != null) {
+            boolean owned = isOwned(ns, entity);
+            ShardManager.events.labels(entityName, String.valueOf(owned)).inc();
+            if (!owned) {
+                // reconciled by another replica
+                return;
+            }
+        }
+        BiConsumer<String, String> changed = onChange;
+        if (changed != null) {
+            changed.accept(ns, entity.getName());
+        }
+        // only enqueue here, so that the watch thread is never blocked by the handlers. Before the first full
+        // reconciliation the queue is held and the events are buffered.
+        queue.add(new WorkQueue.Event<>(action, entity, ns, ResourceCache.key(ns, entity.getName()), generation,
+                resourceVersion, uid));
+    }
+
+    /**
+     * Enqueues an event that doesn't come from the watch, e.g. a change found by a reconciliation. It's handled by the
+     * reconcile workers like the watch events, so never concurrently with another event for the same entity.
+     *
+     * @param action ADDED, MODIFIED or DELETED
+     * @param entity entity
+     * @param ns     namespace of the entity
+     */
+    public void enqueue(Watcher.Action action, T entity, String ns) {
+        queue.add(new WorkQueue.Event<>(action, entity, ns, ResourceCache.key(ns, entity.getName())));
+    }
+
+    /**
+     * Starts <code>concurrency</code> threads that consume the work queue. Events for different keys are handled in
+     * parallel, the queue never hands out a key that is still being processed, so the events for the same
+     * resource are handled one by one in the order they arrived.
+     */
+    private synchronized void startWorkers() {
+        if (!workers.isEmpty()) {
             return;
         }
+        ThreadFactory factory = OperatorExecutors.get().threadFactory(entityName + "-reconciler-");
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = factory.newThread(this::processQueue);
+            workers.add(worker);
+            worker.start();
+        }
+        log.info("Started {} reconcile worker(s) for {}", concurrency, entityName);
+    }
+
+    private void processQueue() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WorkQueue.Event<T> event;
+            try {
+                event = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (event == null) {
+                return;
+            }
+            if (event.getGeneration() != null) {
+                handledGenerations.put(event.getKey(), event.getGeneration());
+            }
+            try {
+                if (event.getReplaced() != null) {
+                    // the object was deleted and created again with a new uid before the deletion was handled
+                    WorkQueue.Event<T> replaced = event.getReplaced();
+                    dispatch(replaced.getAction(), replaced.getEntity(), replaced.getNamespace());
+                }
+                dispatch(event.getAction(), event.getEntity(), event.getNamespace());
+                recordGeneration(event);
+                queue.forget(event);
+            } catch (Exception e) {
+                long delayMs = queue.requeue(event);
+                log.warn("{}Error{} when reacting on {} of {} {} (attempt {}), retrying in {} ms, cause: {}", re(),
+                        xx(), event.getAction(), entityName, event.getKey(), queue.attempts(event), delayMs,
+                        e.getMessage(), e);
+            } finally {
+                handledGenerations.remove(event.getKey());
+                queue.done(event);
+            }
+        }
+    }
+
+    private void recordGeneration(WorkQueue.Event<T> event) {
+        if (event.getAction() == Watcher.Action.DELETED) {
+            observedGenerations.remove(event.getKey());
+        } else if (event.getGeneration() != null) {
+            observedGenerations.merge(event.getKey(), event.getGeneration(), Math::max);
+        }
+    }
+
+    private void dispatch(Watcher.Action action, T entity, String ns) {
         String name = entity.getName();
-        try {
-            switch (action) {
-                case ADDED:
-                    log.info("{}creating{} {}:  \n{}\n", gr(), xx(), entityName, name);
-                    onAdd.accept(entity, ns);
-                    log.info("{} {} has been  {}created{}", entityName, name, gr(), xx());
-                    break;
-                case DELETED:
-                    log.info("{}deleting{} {}:  \n{}\n", gr(), xx(), entityName, name);
-                    onDelete.accept(entity, ns);
-                    log.info("{} {} has been  {}deleted{}", entityName, name, gr(), xx());
-                    break;
-                case MODIFIED:
-                    log.info("{}modifying{} {}:  \n{}\n", gr(), xx(), entityName, name);
-                    onModify.accept(entity, ns);
-                    log.info("{} {} has been  {}modified{}", entityName, name, gr(), xx());
-                    break;
-                default:
-                    log.error("Unknown action: {} in namespace {}", action, namespace);
+        switch (action) {
+            case ADDED:
+                log.info("{}creating{} {}:  \n{}\n", gr(), xx(), entityName, name);
+                onAdd.accept(entity, ns);
+                log.info("{} {} has been  {}created{}", entityName, name, gr(), xx());
+                break;
+            case DELETED:
+                log.info("{}deleting{} {}:  \n{}\n", gr(), xx(), entityName, name);
+                onDelete.accept(entity, ns);
+                log.info("{} {} has been  {}deleted{}", entityName, name, gr(), xx());
+                break;
+            case MODIFIED:
+                log.info("{}modifying{} {}:  \n{}\n", gr(), xx(), entityName, name);
+                onModify.accept(entity, ns);
+                log.info("{} {} has been  {}modified{}", entityName, name, gr(), xx());
+                break;
+            default:
+                log.error("Unknown action: {} in namespace {}", action, namespace);
+        }
+    }
+
+    /**
+     * Converts all the cached config maps or custom resources in the given namespace into 'T's. Objects that
+     * can't be converted are skipped. Unchanged objects are not parsed again, the returned entities are shared with
+     * the conversion cache, so they must not be modified.
+     *
+     * @param ns namespace or <code>"*"</code> for all the namespaces
+     * @return converted entities from the informer's cache
+     */
+    public List<T> listDesired(String ns) {
+        List<? extends HasMetadata> items = isCrd ? crInformer.getCache().list(ns) : cmInformer.getCache().list(ns);
+        if (!fullReconciliationRun) {
+            // remember what the first full reconciliation has seen, so that the buffered events can be deduplicated,
+            // with several watched namespaces, each of them is listed separately
+            Map<String, String> snapshot = new HashMap<>();
+            items.forEach(item -> snapshot.put(ResourceCache.key(item), item.getMetadata().getResourceVersion()));
+            synchronized (this) {
+                if (startupSnapshot == null) {
+                    startupSnapshot = new HashMap<>();
+                }
+                startupSnapshot.putAll(snapshot);
             }
+        }
+        return convertOwned(items).collect(Collectors.toList());
+    }
+
+    private Stream<T> convertOwned(List<? extends HasMetadata> items) {
+        return items.stream().flatMap(item -> {
+            Stream<T> converted = isCrd ? safeConvert(convertCr, (InfoClass) item) :
+                    safeConvert(convert, (ConfigMap) item);
+            return converted.filter(entity -> isOwned(item.getMetadata().getNamespace(), entity));
+        });
+    }
+
+    /**
+     * Publishes how many of the cached entities this replica reconciles, it does nothing if the work is not sharded.
+     */
+    public void updateShardMetrics() {
+        if (ownership == null || !hasSynced()) {
+            return;
+        }
+        List<? extends HasMetadata> items = isCrd ? crInformer.getCache().list() : cmInformer.getCache().list();
+        ShardManager.ownedResources.labels(entityName).set(convertOwned(items).count());
+    }
+
+    private <R extends HasMetadata> Stream<T> safeConvert(Function<R, T> converter, R item) {
+        try {
+            return Stream.of(conversions.get(item, converter));
         } catch (Exception e) {
-            log.warn("{}Error{} when reacting on event, cause: {}", re(), xx(), e.getMessage());
-            e.printStackTrace();
+            // ignore this CM/CR
+            return Stream.empty();
         }
     }
 
+    /**
+     * @param ns   namespace of the entity
+     * @param name name of the entity
+     * @return the desired state of one entity from the informer's cache or null if it doesn't exist or it's owned by
+     * another replica, the instance is shared with the conversion cache, so it must not be modified
+     */
+    public T getDesired(String ns, String name) {
+        ResourceCache<? extends HasMetadata> cache = isCrd ? crInformer.getCache() : cmInformer.getCache();
+        HasMetadata item = cache.get(ns, name);
+        if (item != null) {
+            T entity = convertOwned(Collections.singletonList(item)).findFirst().orElse(null);
+            if (entity != null && name.equals(entity.getName())) {
+                return entity;
+            }
+        }
+        // the entity may have a different name than the object it comes from
+        return convertOwned(cache.list(ns)).filter(entity -> name.equals(entity.getName())).findFirst().orElse(null);
+    }
+
+    /**
+     * @param ns   namespace of the custom resource
+     * @param name name of the custom resource
+     * @return cached custom resource or null if it's not present (or this is a config map watcher)
+     */
+    public InfoClass getCustomResource(String ns, String name) {
+        return isCrd ? crInformer.getCache().get(ns, name) : null;
+    }
+
+    /**
+     * @param ns   namespace of the custom resource
+     * @param name name of the custom resource
+     * @return metadata.generation of the event that is just being handled for the custom resource, or null if the
+     * handler wasn't called for an event (or the generation isn't known)
+     */
+    public Long getHandledGeneration(String ns, String name) {
+        return handledGenerations.get(ResourceCache.key(ns, name));
+    }
+
+    /**
+     * @return true if the informer has listed the watched objects and its cache can be used for reads
+     */
+    public boolean hasSynced() {
+        ResourceInformer<?> informer = isCrd ? crInformer : cmInformer;
+        return informer != null && informer.hasSynced();
+    }
+
     public void close() {
         log.info("Stopping {} for namespace {}", isCrd ? "CustomResourceWatch" : "ConfigMapWatch", namespace);
-        watch.close();
+        ResourceInformer<?> informer = isCrd ? crInformer : cmInformer;
+        if (informer != null) {
+            informer.close();
+        }
+        queue.shutdown();
+        synchronized (this) {
+            workers.forEach(Thread::interrupt);
+            workers.clear();
+        }
         client.close();
     }
 
-    public void setFullReconciliationRun(boolean fullReconciliationRun) {
+    /**
+     * Once the first full reconciliation has finished, the events that were buffered in the meantime are replayed.
+     * Additions of the objects in the same version (resourceVersion) as the reconciliation has seen them and deletions
+     * of the objects it hasn't seen at all are dropped, because they have been already reconciled. If the operator doesn't list the desired state during the
+     * reconciliation, all the buffered events are replayed.
+     *
+     * @param fullReconciliationRun true if the first full reconciliation has finished
+     */
+    public synchronized void setFullReconciliationRun(boolean fullReconciliationRun) {
+        boolean first = fullReconciliationRun && !this.fullReconciliationRun;
         this.fullReconciliationRun = fullReconciliationRun;
+        if (!first) {
+            return;
+        }
+        final Map<String, String> snapshot = startupSnapshot;
+        startupSnapshot = null;
+        int buffered = queue.size();
+        int dropped = queue.release(event -> snapshot != null && isCovered(event, snapshot));
+        log.info("Replaying {} {} event(s) received before the first full reconciliation ({} already reconciled)",
+                buffered - dropped, entityName, dropped);
     }
-}
-
 
+    private static boolean isCovered(WorkQueue.Event<?> event, Map<String, String> snapshot) {
+        switch (event.getAction()) {
+            case ADDED:
+                // the reconciliation has created the object from the very same version
+                return event.getResourceVersion() != null
+                        && event.getResourceVersion().equals(snapshot.get(event.getKey()));
+            case DELETED:
+                return !snapshot.containsKey(event.getKey());
+            default:
+                // the full reconciliation doesn't apply arbitrary modifications (only the scale), replay them
+                return false;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package io.radanalytics.operator.common;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.radanalytics.operator.common.OperatorConfig.ALL_NAMESPACES;
+
+/**
+ * Set of the entities (namespace/name keys) that have changed since the last reconciliation. The watch events of the
+ * operator's own resources and of the resources it has created mark the keys as dirty, the incremental
+ * reconciliation then diffs only these keys instead of the whole desired and actual state. The same key marked
+ * several times is reconciled once.
+ */
+public class ChangeLog {
+
+    private static final Gauge dirtyKeys = Gauge.build()
+            .name("operator_change_log_dirty_keys")
+            .help("Entities that have changed and wait for the incremental reconciliation, by kind.")
+            .labelNames("kind")
+            .register();
+
+    private static final Counter drainedKeys = Counter.build()
+            .name("operator_change_log_reconciled_keys_total")
+            .help("Entities diffed by the incremental reconciliations, by kind.")
+            .labelNames("kind")
+            .register();
+
+    private final String kind;
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    public ChangeLog(String kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * @param namespace namespace of the entity
+     * @param name      name of the entity, nothing is marked if it's null
+     */
+    public void mark(String namespace, String name) {
+        if (name != null && dirty.add(ResourceCache.key(namespace, name))) {
+            dirtyKeys.labels(kind).inc();
+        }
+    }
+
+    /**
+     * Puts the keys back, e.g. when their reconciliation has failed and should be retried.
+     *
+     * @param keys namespace/name keys returned by {@link #drain(String)}
+     */
+    public void restore(Collection<String> keys) {
+        keys.forEach(key -> {
+            if (dirty.add(key)) {
+                dirtyKeys.labels(kind).inc();
+            }
+        });
+    }
+
+    /**
+     * Removes and returns the dirty keys from the namespace.
+     *
+     * @param namespace namespace or <code>"*"</code> for all of them
+     * @return namespace/name keys of the changed entities
+     */
+    public Set<String> drain(String namespace) {
+        Set<String> result = new HashSet<>();
+        String prefix = namespace + "/";
+        for (Iterator<String> it = dirty.iterator(); it.hasNext(); ) {
+            String key = it.next();
+            if (ALL_NAMESPACES.equals(namespace) || key.startsWith(prefix)) {
+                it.remove();
+                result.add(key);
+            }
+        }
+        dirtyKeys.labels(kind).dec(result.size());
+        drainedKeys.labels(kind).inc(result.size());
+        return result;
+    }
+
+    /**
+     * @param key namespace/name key
+     * @return the namespace part of the key
+     */
+    public static String namespace(String key) {
+        return key.substring(0, key.indexOf('/'));
+    }
+
+    /**
+     * @param key namespace/name key
+     * @return the name part of the key
+     */
+    public static String name(String key) {
+        return key.substring(key.indexOf('/') + 1);
+    }
+
+    public int size() {
+        return dirty.size();
+    }
+}
@@ -6,6 +6,7 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.radanalytics.operator.resource.HasDataHelper;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -24,8 +25,12 @@ public class ConfigMapWatcher<T extends EntityInfo> extends AbstractWatcher<T> {
                              BiConsumer<T, String> onDelete,
                              BiConsumer<T, String> onModify,
                              Predicate<ConfigMap> predicate,
-                             Function<ConfigMap, T> convert) {
-        super(true, namespace, entityName, client, null, selector, onAdd, onDelete, onModify, predicate, convert, null);
+                             Function<ConfigMap, T> convert,
+                             long resyncIntervalS,
+                             int concurrency,
+                             Set<String> namespaces) {
+        super(false, namespace, entityName, client, null, selector, onAdd, onDelete, onModify, predicate, convert, null,
+                resyncIntervalS, concurrency, namespaces);
     }
 
     public static class Builder<T> {
@@ -40,6 +45,9 @@ public class ConfigMapWatcher<T extends EntityInfo> extends AbstractWatcher<T> {
         private BiConsumer<T, String> onModify;
         private Predicate<ConfigMap> predicate;
         private Function<ConfigMap, T> convert;
+        private long resyncIntervalS;
+        private int concurrency = 1;
+        private Set<String> namespaces;
 
         public Builder<T> withNamespace(String namespace) {
             this.namespace = namespace;
@@ -86,12 +94,33 @@ public class ConfigMapWatcher<T extends EntityInfo> extends AbstractWatcher<T> {
             return this;
         }
 
+        public Builder<T> withResyncInterval(long resyncIntervalS) {
+            this.resyncIntervalS = resyncIntervalS;
+            return this;
+        }
+
+        public Builder<T> withConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * @param namespaces namespaces the watcher is interested in, if set, one cluster-wide watch is used and the
+         *                   resources from the other namespaces are filtered out
+         * @return this builder
+         */
+        public Builder<T> withNamespaces(Set<String> namespaces) {
+            this.namespaces = namespaces;
+            return this;
+        }
+
         public ConfigMapWatcher build() {
             if (!registered) {
                 io.fabric8.kubernetes.internal.KubernetesDeserializer.registerCustomKind("v1#ConfigMap", ConfigMap.class);
                 registered = true;
             }
-            return new ConfigMapWatcher(namespace, entityName, client, selector, onAdd, onDelete, onModify, predicate, convert);
+            return new ConfigMapWatcher(namespace, entityName, client, selector, onAdd, onDelete, onModify, predicate, convert,
+                    resyncIntervalS, concurrency, namespaces);
         }
     }
 
@@ -101,7 +130,7 @@ public class ConfigMapWatcher<T extends EntityInfo> extends AbstractWatcher<T> {
 
     @Override
     public CompletableFuture<ConfigMapWatcher<T>> watch() {
-        return createConfigMapWatch().thenApply(watch -> this);
+        return createConfigMapWatch().thenApply(informer -> this);
     }
 }
 
@@ -0,0 +1,68 @@
+package io.radanalytics.operator.common;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent hash ring that maps keys (namespaces or namespace/name of the resources) to the members
+ * (operator replicas). Each member is placed on the ring <code>virtualNodes</code> times, so the keys are spread
+ * evenly and when a member joins or leaves, only the keys of that member move.
+ */
+public final class ConsistentHashRing {
+
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private static final HashFunction HASH = Hashing.murmur3_32();
+
+    private final TreeMap<Integer, String> ring = new TreeMap<>();
+    private final SortedSet<String> members;
+
+    public ConsistentHashRing(Collection<String> members) {
+        this(members, DEFAULT_VIRTUAL_NODES);
+    }
+
+    public ConsistentHashRing(Collection<String> members, int virtualNodes) {
+        this.members = Collections.unmodifiableSortedSet(new TreeSet<>(members));
+        for (String member : this.members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // on a (very unlikely) collision the member that sorts first keeps the point, on every replica
+                ring.putIfAbsent(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    /**
+     * @param key namespace or namespace/name
+     * @return member that owns the key or null if the ring is empty
+     */
+    public String owner(String key) {
+        if (ring.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Integer, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    public SortedSet<String> getMembers() {
+        return members;
+    }
+
+    private static int hash(String value) {
+        return HASH.hashString(value, StandardCharsets.UTF_8).asInt();
+    }
+
+    @Override
+    public String toString() {
+        return "ConsistentHashRing{" +
+                "members=" + members +
+                '}';
+    }
+}
@@ -0,0 +1,96 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.prometheus.client.Counter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of the converted entities keyed by <code>uid</code> and <code>resourceVersion</code> of the
+ * config map or custom resource they were converted from. Any change of the object bumps its resourceVersion, so an
+ * unchanged object is never parsed twice.
+ *
+ * The cached entities are shared among the callers and must be treated as read-only.
+ *
+ * @param <T> entity info class
+ */
+public class ConversionCache<T extends EntityInfo> {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static final Counter hits = Counter.build()
+            .name("operator_conversion_cache_hits_total")
+            .help("How many conversions of CMs/CRs were served from the cache.")
+            .labelNames("kind")
+            .register();
+
+    private static final Counter misses = Counter.build()
+            .name("operator_conversion_cache_misses_total")
+            .help("How many CMs/CRs had to be parsed, because they were not in the conversion cache.")
+            .labelNames("kind")
+            .register();
+
+    private final String kind;
+    private final Map<String, T> entries;
+
+    public ConversionCache(String kind) {
+        this(kind, DEFAULT_MAX_SIZE);
+    }
+
+    public ConversionCache(String kind, int maxSize) {
+        this.kind = kind;
+        this.entries = new LinkedHashMap<String, T>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached entity for this version of the resource or converts it and caches the result.
+     *
+     * @param resource  config map or custom resource
+     * @param converter conversion function
+     * @param <R>       type of the resource
+     * @return converted entity
+     */
+    public <R extends HasMetadata> T get(R resource, Function<R, T> converter) {
+        String key = key(resource);
+        if (key != null) {
+            T cached;
+            synchronized (entries) {
+                cached = entries.get(key);
+            }
+            if (cached != null) {
+                hits.labels(kind).inc();
+                return cached;
+            }
+        }
+        misses.labels(kind).inc();
+        // convert outside of the lock, parsing is the expensive part
+        T converted = converter.apply(resource);
+        if (key != null && converted != null) {
+            synchronized (entries) {
+                entries.put(key, converted);
+            }
+        }
+        return converted;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static String key(HasMetadata resource) {
+        if (resource.getMetadata() == null || resource.getMetadata().getUid() == null
+                || resource.getMetadata().getResourceVersion() == null) {
+            return null;
+        }
+        return resource.getMetadata().getUid() + "/" + resource.getMetadata().getResourceVersion();
+    }
+}
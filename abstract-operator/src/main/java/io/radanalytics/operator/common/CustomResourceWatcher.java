@@ -5,6 +5,7 @@ import io.fabric8.kubernetes.api.model.apiextensions.v1.CustomResourceDefinition
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.radanalytics.operator.common.crd.InfoClass;
 
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -13,6 +14,9 @@ import static io.radanalytics.operator.common.OperatorConfig.ALL_NAMESPACES;
 
 public class CustomResourceWatcher<T extends EntityInfo> extends AbstractWatcher<T> {
 
+    // ObjectMapper is thread-safe once configured
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     // use via builder
     private CustomResourceWatcher(String namespace,
                                   String entityName,
@@ -21,8 +25,12 @@ public class CustomResourceWatcher<T extends EntityInfo> extends AbstractWatcher
                                   BiConsumer<T, String> onAdd,
                                   BiConsumer<T, String> onDelete,
                                   BiConsumer<T, String> onModify,
-                                  Function<InfoClass, T> convert) {
-        super(true, namespace, entityName, client, crd, null, onAdd, onDelete, onModify, null, null, convert);
+                                  Function<InfoClass, T> convert,
+                                  long resyncIntervalS,
+                                  int concurrency,
+                                  Set<String> namespaces) {
+        super(true, namespace, entityName, client, crd, null, onAdd, onDelete, onModify, null, null, convert,
+                resyncIntervalS, concurrency, namespaces);
     }
 
     public static class Builder<T> {
@@ -35,6 +43,9 @@ public class CustomResourceWatcher<T extends EntityInfo> extends AbstractWatcher
         private BiConsumer<T, String> onDelete;
         private BiConsumer<T, String> onModify;
         private Function<InfoClass, T> convert;
+        private long resyncIntervalS;
+        private int concurrency = 1;
+        private Set<String> namespaces;
 
         public Builder<T> withNamespace(String namespace) {
             this.namespace = namespace;
@@ -76,16 +87,36 @@ public class CustomResourceWatcher<T extends EntityInfo> extends AbstractWatcher
             return this;
         }
 
+        public Builder<T> withResyncInterval(long resyncIntervalS) {
+            this.resyncIntervalS = resyncIntervalS;
+            return this;
+        }
+
+        public Builder<T> withConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * @param namespaces namespaces the watcher is interested in, if set, one cluster-wide watch is used and the
+         *                   resources from the other namespaces are filtered out
+         * @return this builder
+         */
+        public Builder<T> withNamespaces(Set<String> namespaces) {
+            this.namespaces = namespaces;
+            return this;
+        }
+
         public CustomResourceWatcher build() {
-            return new CustomResourceWatcher(namespace, entityName, client, crd, onAdd, onDelete, onModify, convert);
+            return new CustomResourceWatcher(namespace, entityName, client, crd, onAdd, onDelete, onModify, convert,
+                    resyncIntervalS, concurrency, namespaces);
         }
     }
 
     public static <T extends EntityInfo> T defaultConvert(Class<T> clazz, InfoClass info) {
         String name = info.getMetadata().getName();
         String namespace = info.getMetadata().getNamespace();
-        ObjectMapper mapper = new ObjectMapper();
-        T infoSpec = mapper.convertValue(info.getSpec(), clazz);
+        T infoSpec = MAPPER.convertValue(info.getSpec(), clazz);
         if (infoSpec == null) { // empty spec
             try {
                 infoSpec = clazz.newInstance();
@@ -106,7 +137,7 @@ public class CustomResourceWatcher<T extends EntityInfo> extends AbstractWatcher
 
     @Override
     public CompletableFuture<CustomResourceWatcher<T>> watch() {
-        return createCustomResourceWatch().thenApply(watch -> this);
+        return createCustomResourceWatch().thenApply(informer -> this);
     }
 }
 
@@ -15,6 +15,19 @@ public abstract class EntityInfo {
     protected String name;
     protected String namespace;
 
+    protected EntityInfo() {
+    }
+
+    /**
+     * Copy constructor, it's called by the generated copy constructors of the subclasses.
+     *
+     * @param source instance to copy
+     */
+    protected EntityInfo(EntityInfo source) {
+        this.name = source.name;
+        this.namespace = source.namespace;
+    }
+
     public void setName(String name) {
         this.name = name;
     }
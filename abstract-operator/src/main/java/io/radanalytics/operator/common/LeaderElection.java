@@ -0,0 +1,237 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.api.model.coordination.v1.Lease;
+import io.fabric8.kubernetes.api.model.coordination.v1.LeaseList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.NamespacedKubernetesClient;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.extended.leaderelection.LeaderCallbacks;
+import io.fabric8.kubernetes.client.extended.leaderelection.LeaderElectionConfig;
+import io.fabric8.kubernetes.client.extended.leaderelection.LeaderElectionConfigBuilder;
+import io.fabric8.kubernetes.client.extended.leaderelection.LeaderElector;
+import io.fabric8.kubernetes.client.extended.leaderelection.resourcelock.LeaseLock;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leader election among the replicas of the operator, built on a <code>coordination.k8s.io/v1</code> Lease.
+ *
+ * Only the leader reconciles, the other replicas are hot standbys: they run the informers so their caches are warm,
+ * but they hold the events and don't run the full reconciliations. When the leader stops renewing the lease (or
+ * releases it on a graceful shutdown), one of the standbys takes over after at most <code>leaseDuration</code>.
+ *
+ * The failover time is measured by the new leader as the time between the last renewal of the previous leader it has
+ * observed and the moment it acquired the lease.
+ */
+public class LeaderElection {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderElection.class.getName());
+
+    private static final long MIN_RETRY_PERIOD_MS = 200;
+
+    private static final Gauge isLeader = Gauge.build()
+            .name("operator_leader")
+            .help("1 if this replica holds the leader lease, 0 otherwise.")
+            .register();
+
+    private static final Counter transitions = Counter.build()
+            .name("operator_leader_transitions_total")
+            .help("How many times this replica became the leader.")
+            .register();
+
+    private static final Histogram failover = Histogram.build()
+            .name("operator_leader_failover_seconds")
+            .help("Time between the last observed renewal of the previous leader and the takeover by this replica.")
+            .buckets(0.5, 1, 2, 5, 10, 15, 20, 30, 60)
+            .register();
+
+    private final KubernetesClient client;
+    private final String leaseNamespace;
+    private final String leaseName;
+    private final String identity;
+    private final Duration leaseDuration;
+    private final Duration renewDeadline;
+    private final Duration retryPeriod;
+
+    private volatile boolean leader = false;
+    private volatile boolean stopping = false;
+    private volatile ZonedDateTime lastForeignRenew;
+    private volatile Thread electionThread;
+    private volatile ScheduledFuture<?> observer;
+
+    /**
+     * @param client         client used for the lease
+     * @param leaseNamespace namespace of the lease, usually the namespace where the operator is deployed
+     * @param leaseName      name of the lease shared by all the replicas
+     * @param identity       unique identity of this replica, e.g. the pod name
+     * @param leaseDuration  how long the standbys wait before taking over a lease that is not being renewed
+     */
+    public LeaderElection(KubernetesClient client, String leaseNamespace, String leaseName, String identity,
+                          Duration leaseDuration) {
+        this.client = client;
+        this.leaseNamespace = leaseNamespace;
+        this.leaseName = leaseName;
+        this.identity = identity;
+        this.leaseDuration = leaseDuration;
+        this.renewDeadline = leaseDuration.multipliedBy(2).dividedBy(3);
+        this.retryPeriod = Duration.ofMillis(Math.max(MIN_RETRY_PERIOD_MS, leaseDuration.toMillis() / 5));
+    }
+
+    /**
+     * Starts competing for the lease in a background thread.
+     *
+     * @param onStartLeading called when this replica becomes the leader
+     * @param onStopLeading  called when this replica has lost the lease, it's not called if the leadership ended by
+     *                       {@link #stop()}
+     */
+    public synchronized void start(Runnable onStartLeading, Runnable onStopLeading) {
+        if (electionThread != null) {
+            return;
+        }
+        LeaderElectionConfig electionConfig = new LeaderElectionConfigBuilder()
+                .withName(leaseName)
+                .withLock(new LeaseLock(leaseNamespace, leaseName, identity))
+                .withLeaseDuration(leaseDuration)
+                .withRenewDeadline(renewDeadline)
+                .withRetryPeriod(retryPeriod)
+                .withLeaderCallbacks(new LeaderCallbacks(
+                        () -> startedLeading(onStartLeading),
+                        () -> stoppedLeading(onStopLeading),
+                        newLeader -> log.info("the current leader is {}", newLeader)))
+                .build();
+        LeaderElector<NamespacedKubernetesClient> elector = client.leaderElector().withConfig(electionConfig).build();
+
+        long retryMs = retryPeriod.toMillis();
+        observer = OperatorExecutors.get().scheduler().scheduleWithFixedDelay(
+                () -> OperatorExecutors.get().blocking().execute(this::observeLease), 0, retryMs, TimeUnit.MILLISECONDS);
+        electionThread = OperatorExecutors.get().threadFactory("operator-leader-election-").newThread(() -> {
+            log.info("{} is competing for the lease {}/{}", identity, leaseNamespace, leaseName);
+            try {
+                elector.run();
+            } catch (Exception e) {
+                log.error("leader election failed", e);
+                stoppedLeading(onStopLeading);
+            }
+        });
+        electionThread.start();
+    }
+
+    private void startedLeading(Runnable callback) {
+        ScheduledFuture<?> o = observer;
+        if (o != null) {
+            o.cancel(false);
+        }
+        leader = true;
+        isLeader.set(1);
+        transitions.inc();
+        ZonedDateTime previous = lastForeignRenew;
+        if (previous != null) {
+            long ms = Duration.between(previous, ZonedDateTime.now()).toMillis();
+            failover.observe(Math.max(0, ms) / 1000.0);
+            log.info("{} became the leader {} ms after the last renewal of the previous leader", identity, ms);
+        } else {
+            log.info("{} became the leader", identity);
+        }
+        callback.run();
+    }
+
+    private void stoppedLeading(Runnable callback) {
+        boolean wasLeader = leader;
+        leader = false;
+        isLeader.set(0);
+        if (stopping) {
+            return;
+        }
+        if (wasLeader) {
+            log.error("{} is no longer the leader", identity);
+        }
+        callback.run();
+    }
+
+    /**
+     * Remembers when the current holder of the lease renewed it for the last time, while this replica is a standby.
+     */
+    private void observeLease() {
+        if (leader) {
+            return;
+        }
+        try {
+            Lease lease = lease().get();
+            if (lease == null || lease.getSpec() == null) {
+                return;
+            }
+            String holder = lease.getSpec().getHolderIdentity();
+            if (holder != null && !holder.isEmpty() && !identity.equals(holder)) {
+                lastForeignRenew = lease.getSpec().getRenewTime();
+            }
+        } catch (Exception e) {
+            log.debug("unable to read the lease {}/{}: {}", leaseNamespace, leaseName, e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the election. If this replica is the leader, the lease is released so that a standby can take over
+     * without waiting for the lease to expire.
+     */
+    public synchronized void stop() {
+        stopping = true;
+        ScheduledFuture<?> o = observer;
+        if (o != null) {
+            o.cancel(false);
+        }
+        Thread t = electionThread;
+        if (t == null) {
+            return;
+        }
+        boolean wasLeader = leader;
+        t.interrupt();
+        try {
+            t.join(retryPeriod.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        leader = false;
+        isLeader.set(0);
+        if (wasLeader) {
+            release();
+        }
+    }
+
+    private void release() {
+        try {
+            Lease lease = lease().get();
+            if (lease != null && lease.getSpec() != null && identity.equals(lease.getSpec().getHolderIdentity())) {
+                // an expired lease can be acquired right away by the standbys
+                lease.getSpec().setHolderIdentity("");
+                lease.getSpec().setRenewTime(ZonedDateTime.now().minus(leaseDuration));
+                lease().replace(lease);
+                log.info("{} released the lease {}/{}", identity, leaseNamespace, leaseName);
+            }
+        } catch (Exception e) {
+            log.warn("unable to release the lease {}/{}: {}", leaseNamespace, leaseName, e.getMessage());
+        }
+    }
+
+    private Resource<Lease> lease() {
+        return client.resources(Lease.class, LeaseList.class).inNamespace(leaseNamespace).withName(leaseName);
+    }
+
+    /**
+     * @return true if this replica currently holds the lease
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+
+    public String getIdentity() {
+        return identity;
+    }
+}
@@ -25,12 +25,38 @@ public class OperatorConfig {
     public static final String METRICS_PORT = "METRICS_PORT";
     public static final String FULL_RECONCILIATION_INTERVAL_S = "FULL_RECONCILIATION_INTERVAL_S";
     public static final String OPERATOR_OPERATION_TIMEOUT_MS = "OPERATOR_OPERATION_TIMEOUT_MS";
+    public static final String CACHE_RESYNC_INTERVAL_S = "CACHE_RESYNC_INTERVAL_S";
+    public static final String RECONCILE_CONCURRENCY = "RECONCILE_CONCURRENCY";
+    public static final String EXECUTOR_MODE = "EXECUTOR_MODE";
+    public static final String EXECUTOR_POOL_SIZE = "EXECUTOR_POOL_SIZE";
+    public static final String FULL_RECONCILIATION_CONCURRENCY = "FULL_RECONCILIATION_CONCURRENCY";
+    public static final String FULL_RECONCILIATION_PARALLELISM = "FULL_RECONCILIATION_PARALLELISM";
+    public static final String LEADER_ELECTION = "LEADER_ELECTION";
+    public static final String LEADER_ELECTION_LEASE_NAME = "LEADER_ELECTION_LEASE_NAME";
+    public static final String LEADER_ELECTION_LEASE_DURATION_S = "LEADER_ELECTION_LEASE_DURATION_S";
+    public static final String INCREMENTAL_RECONCILIATION_INTERVAL_S = "INCREMENTAL_RECONCILIATION_INTERVAL_S";
+    public static final String SHARDING = "SHARDING";
+    public static final String SHARDING_GROUP = "SHARDING_GROUP";
+    public static final String SHARDING_LEASE_DURATION_S = "SHARDING_LEASE_DURATION_S";
 
     public static final boolean DEFAULT_METRICS = true;
     public static final boolean DEFAULT_METRICS_JVM = false;
     public static final int DEFAULT_METRICS_PORT = 8080;
     public static final long DEFAULT_FULL_RECONCILIATION_INTERVAL_S = 180;
     public static final long DEFAULT_OPERATION_TIMEOUT_MS = 60_000;
+    public static final long DEFAULT_CACHE_RESYNC_INTERVAL_S = 1800;
+    public static final int DEFAULT_RECONCILE_CONCURRENCY = Runtime.getRuntime().availableProcessors();
+    public static final OperatorExecutors.Mode DEFAULT_EXECUTOR_MODE = OperatorExecutors.Mode.PLATFORM;
+    public static final int DEFAULT_EXECUTOR_POOL_SIZE = 10;
+    public static final int DEFAULT_FULL_RECONCILIATION_CONCURRENCY = 2;
+    public static final int DEFAULT_FULL_RECONCILIATION_PARALLELISM = 4;
+    public static final boolean DEFAULT_LEADER_ELECTION = false;
+    public static final String DEFAULT_LEADER_ELECTION_LEASE_NAME = "operator-leader";
+    public static final long DEFAULT_LEADER_ELECTION_LEASE_DURATION_S = 10;
+    public static final long DEFAULT_INCREMENTAL_RECONCILIATION_INTERVAL_S = 10;
+    public static final ShardManager.Mode DEFAULT_SHARDING = ShardManager.Mode.NONE;
+    public static final String DEFAULT_SHARDING_GROUP = "operator-shards";
+    public static final long DEFAULT_SHARDING_LEASE_DURATION_S = 15;
 
     private final Set<String> namespaces;
     private final boolean metrics;
@@ -38,9 +64,22 @@ public class OperatorConfig {
     private final int metricsPort;
     private final long reconciliationIntervalS;
     private final long operationTimeoutMs;
+    private final long cacheResyncIntervalS;
+    private final int reconcileConcurrency;
+    private final OperatorExecutors.Mode executorMode;
+    private final int executorPoolSize;
+    private final int fullReconciliationConcurrency;
+    private final int fullReconciliationParallelism;
+    private final boolean leaderElection;
+    private final String leaderElectionLeaseName;
+    private final long leaderElectionLeaseDurationS;
+    private final long incrementalReconciliationIntervalS;
+    private final ShardManager.Mode sharding;
+    private final String shardingGroup;
+    private final long shardingLeaseDurationS;
 
     /**
-     * Constructor
+     * Constructor, the settings that are not passed have their default values
      *
      * @param namespaces                  namespace in which the operator will run and create resources
      * @param metrics                     whether the metrics server for prometheus should be started
@@ -51,12 +90,156 @@ public class OperatorConfig {
      */
     public OperatorConfig(Set<String> namespaces, boolean metrics, boolean metricsJvm, int metricsPort,
                           long reconciliationIntervalS, long operationTimeoutMs) {
-        this.namespaces = namespaces;
-        this.reconciliationIntervalS = reconciliationIntervalS;
-        this.operationTimeoutMs = operationTimeoutMs;
-        this.metrics = metrics;
-        this.metricsJvm = metricsJvm;
-        this.metricsPort = metricsPort;
+        this(new Builder().withNamespaces(namespaces).withMetrics(metrics).withMetricsJvm(metricsJvm)
+                .withMetricsPort(metricsPort).withReconciliationInterval(reconciliationIntervalS)
+                .withOperationTimeout(operationTimeoutMs));
+    }
+
+    private OperatorConfig(Builder builder) {
+        this.namespaces = builder.namespaces;
+        this.reconciliationIntervalS = builder.reconciliationIntervalS;
+        this.operationTimeoutMs = builder.operationTimeoutMs;
+        this.cacheResyncIntervalS = builder.cacheResyncIntervalS;
+        this.reconcileConcurrency = builder.reconcileConcurrency;
+        this.executorMode = builder.executorMode;
+        this.executorPoolSize = builder.executorPoolSize;
+        this.fullReconciliationConcurrency = builder.fullReconciliationConcurrency;
+        this.fullReconciliationParallelism = builder.fullReconciliationParallelism;
+        this.leaderElection = builder.leaderElection;
+        this.leaderElectionLeaseName = builder.leaderElectionLeaseName;
+        this.leaderElectionLeaseDurationS = builder.leaderElectionLeaseDurationS;
+        this.incrementalReconciliationIntervalS = builder.incrementalReconciliationIntervalS;
+        this.sharding = builder.sharding;
+        this.shardingGroup = builder.shardingGroup;
+        this.shardingLeaseDurationS = builder.shardingLeaseDurationS;
+        this.metrics = builder.metrics;
+        this.metricsJvm = builder.metricsJvm;
+        this.metricsPort = builder.metricsPort;
+    }
+
+    /**
+     * Builds the configuration in code, each setting that is not set has its default value (the same as in
+     * {@link #fromMap(Map)} when the environment variable is missing).
+     */
+    public static class Builder {
+        private Set<String> namespaces = Collections.singleton(ALL_NAMESPACES);
+        private boolean metrics = DEFAULT_METRICS;
+        private boolean metricsJvm = DEFAULT_METRICS_JVM;
+        private int metricsPort = DEFAULT_METRICS_PORT;
+        private long reconciliationIntervalS = DEFAULT_FULL_RECONCILIATION_INTERVAL_S;
+        private long operationTimeoutMs = DEFAULT_OPERATION_TIMEOUT_MS;
+        private long cacheResyncIntervalS = DEFAULT_CACHE_RESYNC_INTERVAL_S;
+        private int reconcileConcurrency = DEFAULT_RECONCILE_CONCURRENCY;
+        private OperatorExecutors.Mode executorMode = DEFAULT_EXECUTOR_MODE;
+        private int executorPoolSize = DEFAULT_EXECUTOR_POOL_SIZE;
+        private int fullReconciliationConcurrency = DEFAULT_FULL_RECONCILIATION_CONCURRENCY;
+        private int fullReconciliationParallelism = DEFAULT_FULL_RECONCILIATION_PARALLELISM;
+        private boolean leaderElection = DEFAULT_LEADER_ELECTION;
+        private String leaderElectionLeaseName = DEFAULT_LEADER_ELECTION_LEASE_NAME;
+        private long leaderElectionLeaseDurationS = DEFAULT_LEADER_ELECTION_LEASE_DURATION_S;
+        private long incrementalReconciliationIntervalS = DEFAULT_INCREMENTAL_RECONCILIATION_INTERVAL_S;
+        private ShardManager.Mode sharding = DEFAULT_SHARDING;
+        private String shardingGroup = DEFAULT_SHARDING_GROUP;
+        private long shardingLeaseDurationS = DEFAULT_SHARDING_LEASE_DURATION_S;
+
+        public Builder withNamespaces(Set<String> namespaces) {
+            this.namespaces = namespaces;
+            return this;
+        }
+
+        public Builder withMetrics(boolean metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public Builder withMetricsJvm(boolean metricsJvm) {
+            this.metricsJvm = metricsJvm;
+            return this;
+        }
+
+        public Builder withMetricsPort(int metricsPort) {
+            this.metricsPort = metricsPort;
+            return this;
+        }
+
+        public Builder withReconciliationInterval(long reconciliationIntervalS) {
+            this.reconciliationIntervalS = reconciliationIntervalS;
+            return this;
+        }
+
+        public Builder withOperationTimeout(long operationTimeoutMs) {
+            this.operationTimeoutMs = operationTimeoutMs;
+            return this;
+        }
+
+        public Builder withCacheResyncInterval(long cacheResyncIntervalS) {
+            this.cacheResyncIntervalS = cacheResyncIntervalS;
+            return this;
+        }
+
+        public Builder withReconcileConcurrency(int reconcileConcurrency) {
+            this.reconcileConcurrency = reconcileConcurrency;
+            return this;
+        }
+
+        public Builder withExecutorMode(OperatorExecutors.Mode executorMode) {
+            this.executorMode = executorMode;
+            return this;
+        }
+
+        public Builder withExecutorPoolSize(int executorPoolSize) {
+            this.executorPoolSize = executorPoolSize;
+            return this;
+        }
+
+        public Builder withFullReconciliationConcurrency(int fullReconciliationConcurrency) {
+            this.fullReconciliationConcurrency = fullReconciliationConcurrency;
+            return this;
+        }
+
+        public Builder withFullReconciliationParallelism(int fullReconciliationParallelism) {
+            this.fullReconciliationParallelism = fullReconciliationParallelism;
+            return this;
+        }
+
+        public Builder withLeaderElection(boolean leaderElection) {
+            this.leaderElection = leaderElection;
+            return this;
+        }
+
+        public Builder withLeaderElectionLeaseName(String leaderElectionLeaseName) {
+            this.leaderElectionLeaseName = leaderElectionLeaseName;
+            return this;
+        }
+
+        public Builder withLeaderElectionLeaseDuration(long leaderElectionLeaseDurationS) {
+            this.leaderElectionLeaseDurationS = leaderElectionLeaseDurationS;
+            return this;
+        }
+
+        public Builder withIncrementalReconciliationInterval(long incrementalReconciliationIntervalS) {
+            this.incrementalReconciliationIntervalS = incrementalReconciliationIntervalS;
+            return this;
+        }
+
+        public Builder withSharding(ShardManager.Mode sharding) {
+            this.sharding = sharding;
+            return this;
+        }
+
+        public Builder withShardingGroup(String shardingGroup) {
+            this.shardingGroup = shardingGroup;
+            return this;
+        }
+
+        public Builder withShardingLeaseDuration(long shardingLeaseDurationS) {
+            this.shardingLeaseDurationS = shardingLeaseDurationS;
+            return this;
+        }
+
+        public OperatorConfig build() {
+            return new OperatorConfig(this);
+        }
     }
 
     /**
@@ -111,8 +294,105 @@ public class OperatorConfig {
             operationTimeout = Long.parseLong(operationTimeoutEnvVar);
         }
 
-        return new OperatorConfig(namespaces, metricsAux, metricsJvmAux, metricsPortAux, reconciliationInterval,
-                operationTimeout);
+        long cacheResyncInterval = DEFAULT_CACHE_RESYNC_INTERVAL_S;
+        String cacheResyncIntervalEnvVar = map.get(CACHE_RESYNC_INTERVAL_S);
+        if (cacheResyncIntervalEnvVar != null) {
+            cacheResyncInterval = Long.parseLong(cacheResyncIntervalEnvVar);
+        }
+
+        int reconcileConcurrency = DEFAULT_RECONCILE_CONCURRENCY;
+        String reconcileConcurrencyEnvVar = map.get(RECONCILE_CONCURRENCY);
+        if (reconcileConcurrencyEnvVar != null) {
+            reconcileConcurrency = Math.max(1, Integer.parseInt(reconcileConcurrencyEnvVar.trim()));
+        }
+
+        OperatorExecutors.Mode executorMode = DEFAULT_EXECUTOR_MODE;
+        String executorModeEnvVar = map.get(EXECUTOR_MODE);
+        if (executorModeEnvVar != null) {
+            executorMode = OperatorExecutors.Mode.valueOf(executorModeEnvVar.trim().toUpperCase());
+        }
+
+        int executorPoolSize = DEFAULT_EXECUTOR_POOL_SIZE;
+        String executorPoolSizeEnvVar = map.get(EXECUTOR_POOL_SIZE);
+        if (executorPoolSizeEnvVar != null) {
+            executorPoolSize = Math.max(1, Integer.parseInt(executorPoolSizeEnvVar.trim()));
+        }
+
+        int fullReconciliationConcurrency = DEFAULT_FULL_RECONCILIATION_CONCURRENCY;
+        String fullReconciliationConcurrencyEnvVar = map.get(FULL_RECONCILIATION_CONCURRENCY);
+        if (fullReconciliationConcurrencyEnvVar != null) {
+            fullReconciliationConcurrency = Math.max(1, Integer.parseInt(fullReconciliationConcurrencyEnvVar.trim()));
+        }
+
+        int fullReconciliationParallelism = DEFAULT_FULL_RECONCILIATION_PARALLELISM;
+        String fullReconciliationParallelismEnvVar = map.get(FULL_RECONCILIATION_PARALLELISM);
+        if (fullReconciliationParallelismEnvVar != null) {
+            fullReconciliationParallelism = Math.max(1, Integer.parseInt(fullReconciliationParallelismEnvVar.trim()));
+        }
+
+        boolean leaderElection = DEFAULT_LEADER_ELECTION;
+        String leaderElectionEnvVar = map.get(LEADER_ELECTION);
+        if (leaderElectionEnvVar != null) {
+            leaderElection = "true".equals(leaderElectionEnvVar.trim().toLowerCase());
+        }
+
+        String leaderElectionLeaseName = DEFAULT_LEADER_ELECTION_LEASE_NAME;
+        String leaderElectionLeaseNameEnvVar = map.get(LEADER_ELECTION_LEASE_NAME);
+        if (leaderElectionLeaseNameEnvVar != null && !leaderElectionLeaseNameEnvVar.trim().isEmpty()) {
+            leaderElectionLeaseName = leaderElectionLeaseNameEnvVar.trim();
+        }
+
+        long leaderElectionLeaseDuration = DEFAULT_LEADER_ELECTION_LEASE_DURATION_S;
+        String leaderElectionLeaseDurationEnvVar = map.get(LEADER_ELECTION_LEASE_DURATION_S);
+        if (leaderElectionLeaseDurationEnvVar != null) {
+            leaderElectionLeaseDuration = Math.max(1, Long.parseLong(leaderElectionLeaseDurationEnvVar.trim()));
+        }
+
+        long incrementalReconciliationInterval = DEFAULT_INCREMENTAL_RECONCILIATION_INTERVAL_S;
+        String incrementalReconciliationIntervalEnvVar = map.get(INCREMENTAL_RECONCILIATION_INTERVAL_S);
+        if (incrementalReconciliationIntervalEnvVar != null) {
+            incrementalReconciliationInterval = Math.max(0, Long.parseLong(incrementalReconciliationIntervalEnvVar.trim()));
+        }
+
+        ShardManager.Mode sharding = DEFAULT_SHARDING;
+        String shardingEnvVar = map.get(SHARDING);
+        if (shardingEnvVar != null && !shardingEnvVar.trim().isEmpty()) {
+            sharding = ShardManager.Mode.valueOf(shardingEnvVar.trim().toUpperCase());
+        }
+
+        String shardingGroup = DEFAULT_SHARDING_GROUP;
+        String shardingGroupEnvVar = map.get(SHARDING_GROUP);
+        if (shardingGroupEnvVar != null && !shardingGroupEnvVar.trim().isEmpty()) {
+            shardingGroup = shardingGroupEnvVar.trim();
+        }
+
+        long shardingLeaseDuration = DEFAULT_SHARDING_LEASE_DURATION_S;
+        String shardingLeaseDurationEnvVar = map.get(SHARDING_LEASE_DURATION_S);
+        if (shardingLeaseDurationEnvVar != null) {
+            shardingLeaseDuration = Math.max(1, Long.parseLong(shardingLeaseDurationEnvVar.trim()));
+        }
+
+        return new Builder()
+                .withNamespaces(namespaces)
+                .withMetrics(metricsAux)
+                .withMetricsJvm(metricsJvmAux)
+                .withMetricsPort(metricsPortAux)
+                .withReconciliationInterval(reconciliationInterval)
+                .withOperationTimeout(operationTimeout)
+                .withCacheResyncInterval(cacheResyncInterval)
+                .withReconcileConcurrency(reconcileConcurrency)
+                .withExecutorMode(executorMode)
+                .withExecutorPoolSize(executorPoolSize)
+                .withFullReconciliationConcurrency(fullReconciliationConcurrency)
+                .withFullReconciliationParallelism(fullReconciliationParallelism)
+                .withLeaderElection(leaderElection)
+                .withLeaderElectionLeaseName(leaderElectionLeaseName)
+                .withLeaderElectionLeaseDuration(leaderElectionLeaseDuration)
+                .withIncrementalReconciliationInterval(incrementalReconciliationInterval)
+                .withSharding(sharding)
+                .withShardingGroup(shardingGroup)
+                .withShardingLeaseDuration(shardingLeaseDuration)
+                .build();
     }
 
 
@@ -137,6 +417,97 @@ public class OperatorConfig {
         return operationTimeoutMs;
     }
 
+    /**
+     * @return  how many seconds among the re-lists of the informer caches
+     */
+    public long getCacheResyncIntervalS() {
+        return cacheResyncIntervalS;
+    }
+
+    /**
+     * @return  how many worker threads handle the events for one operator
+     */
+    public int getReconcileConcurrency() {
+        return reconcileConcurrency;
+    }
+
+    /**
+     * @return  whether the blocking operations run on platform or virtual threads
+     */
+    public OperatorExecutors.Mode getExecutorMode() {
+        return executorMode;
+    }
+
+    /**
+     * @return  max number of platform threads for the blocking operations
+     */
+    public int getExecutorPoolSize() {
+        return executorPoolSize;
+    }
+
+    /**
+     * @return  max number of full reconciliations running at the same time
+     */
+    public int getFullReconciliationConcurrency() {
+        return fullReconciliationConcurrency;
+    }
+
+    /**
+     * @return  max number of namespaces processed in parallel by one full reconciliation of all the namespaces
+     */
+    public int getFullReconciliationParallelism() {
+        return fullReconciliationParallelism;
+    }
+
+    /**
+     * @return  whether the replicas elect a leader, only the leader reconciles
+     */
+    public boolean isLeaderElection() {
+        return leaderElection;
+    }
+
+    /**
+     * @return  name of the lease used for the leader election
+     */
+    public String getLeaderElectionLeaseName() {
+        return leaderElectionLeaseName;
+    }
+
+    /**
+     * @return  after how many seconds without renewal a standby takes over the lease
+     */
+    public long getLeaderElectionLeaseDurationS() {
+        return leaderElectionLeaseDurationS;
+    }
+
+    /**
+     * @return  every how many seconds the changed entities are reconciled, 0 if disabled
+     */
+    public long getIncrementalReconciliationIntervalS() {
+        return incrementalReconciliationIntervalS;
+    }
+
+    /**
+     * @return  whether the namespaces or the resources are split among the replicas
+     */
+    public ShardManager.Mode getSharding() {
+        return sharding;
+    }
+
+    /**
+     * @return  name of the group of replicas sharing the work
+     */
+    public String getShardingGroup() {
+        return shardingGroup;
+    }
+
+    /**
+     * @return  after how many seconds without renewal a replica is removed from the group
+     */
+    public long getShardingLeaseDurationS() {
+        return shardingLeaseDurationS;
+    }
+
     public boolean isMetrics() {
         return metrics;
     }
@@ -158,6 +529,19 @@ public class OperatorConfig {
                 ", metricsPort=" + metricsPort +
                 ", reconciliationIntervalS=" + reconciliationIntervalS +
                 ", operationTimeoutMs=" + operationTimeoutMs +
+                ", cacheResyncIntervalS=" + cacheResyncIntervalS +
+                ", reconcileConcurrency=" + reconcileConcurrency +
+                ", executorMode=" + executorMode +
+                ", executorPoolSize=" + executorPoolSize +
+                ", fullReconciliationConcurrency=" + fullReconciliationConcurrency +
+                ", fullReconciliationParallelism=" + fullReconciliationParallelism +
+                ", leaderElection=" + leaderElection +
+                ", leaderElectionLeaseName='" + leaderElectionLeaseName + '\'' +
+                ", leaderElectionLeaseDurationS=" + leaderElectionLeaseDurationS +
+                ", incrementalReconciliationIntervalS=" + incrementalReconciliationIntervalS +
+                ", sharding=" + sharding +
+                ", shardingGroup='" + shardingGroup + '\'' +
+                ", shardingLeaseDurationS=" + shardingLeaseDurationS +
                 '}';
     }
 }
@@ -0,0 +1,329 @@
+package io.radanalytics.operator.common;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Threads used by the operators. There are two kinds of them:
+ * <ul>
+ *     <li>{@link #blocking()} and {@link #threadFactory(String)} for the work that blocks on the Kubernetes API
+ *     (starting the informers, handling the events, full reconciliations)</li>
+ *     <li>{@link #scheduler()} small shared pool for timers, the scheduled tasks should only hand over the real work
+ *     to the blocking executor</li>
+ * </ul>
+ *
+ * The blocking work runs either on a bounded pool of platform threads or, with {@link Mode#VIRTUAL} on JDK 21+, on
+ * virtual threads. The mode is selected by <code>EXECUTOR_MODE</code> in {@link OperatorConfig}.
+ */
+public class OperatorExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(OperatorExecutors.class.getName());
+
+    private static final String PREFIX = "operator_executor_";
+
+    private static final Counter submitted = Counter.build()
+            .name(PREFIX + "tasks_submitted_total")
+            .help("Tasks submitted to the executor.")
+            .labelNames("pool")
+            .register();
+
+    private static final Gauge queued = Gauge.build()
+            .name(PREFIX + "tasks_queued")
+            .help("Tasks waiting for a thread.")
+            .labelNames("pool")
+            .register();
+
+    private static final Gauge active = Gauge.build()
+            .name(PREFIX + "tasks_active")
+            .help("Tasks that are currently running.")
+            .labelNames("pool")
+            .register();
+
+    private static final Histogram duration = Histogram.build()
+            .name(PREFIX + "task_duration_seconds")
+            .help("How long the tasks were running.")
+            .labelNames("pool")
+            .buckets(0.01, 0.1, 0.5, 1, 5, 10, 30, 60, 300)
+            .register();
+
+    public enum Mode {
+        PLATFORM, VIRTUAL
+    }
+
+    public static final int DEFAULT_SCHEDULER_THREADS = 2;
+
+    private static volatile OperatorExecutors instance;
+
+    private final Mode mode;
+    private final ExecutorService blocking;
+    private final ScheduledExecutorService scheduler;
+
+    private OperatorExecutors(Mode requestedMode, int poolSize) {
+        Mode realMode = requestedMode;
+        ExecutorService pool = null;
+        if (requestedMode == Mode.VIRTUAL) {
+            pool = newVirtualThreadExecutor("operator-worker-");
+            if (pool == null) {
+                log.warn("Virtual threads are not supported by this JVM ({}), falling back to a pool of {} platform threads",
+                        System.getProperty("java.version"), poolSize);
+                realMode = Mode.PLATFORM;
+            }
+        }
+        if (pool == null) {
+            ThreadPoolExecutor tpe = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), platformThreadFactory("operator-worker-"));
+            tpe.allowCoreThreadTimeOut(true);
+            pool = tpe;
+        }
+        this.mode = realMode;
+        this.blocking = new InstrumentedExecutorService("blocking", pool);
+        ScheduledThreadPoolExecutor stpe = new ScheduledThreadPoolExecutor(DEFAULT_SCHEDULER_THREADS,
+                platformThreadFactory("operator-scheduler-"));
+        stpe.setRemoveOnCancelPolicy(true);
+        this.scheduler = stpe;
+        log.info("Using {} threads for the blocking operations", mode == Mode.VIRTUAL ? "virtual" : poolSize + " platform");
+    }
+
+    /**
+     * Creates the executors according to the configuration. It should be called once before the operators start,
+     * otherwise the defaults are used.
+     *
+     * @param mode     platform or virtual threads
+     * @param poolSize max number of platform threads for the blocking operations
+     * @return the executors
+     */
+    public static synchronized OperatorExecutors init(Mode mode, int poolSize) {
+        if (instance != null) {
+            log.warn("Executors have been already initialized, ignoring the new configuration");
+            return instance;
+        }
+        instance = new OperatorExecutors(mode, poolSize);
+        return instance;
+    }
+
+    public static OperatorExecutors get() {
+        OperatorExecutors result = instance;
+        if (result == null) {
+            synchronized (OperatorExecutors.class) {
+                if (instance == null) {
+                    instance = new OperatorExecutors(OperatorConfig.DEFAULT_EXECUTOR_MODE,
+                            OperatorConfig.DEFAULT_EXECUTOR_POOL_SIZE);
+                }
+                result = instance;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return executor for the tasks that block on I/O
+     */
+    public ExecutorService blocking() {
+        return blocking;
+    }
+
+    /**
+     * @return shared scheduler for the timers
+     */
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Thread factory for long-running loops that block on I/O, like the reconcile workers.
+     *
+     * @param prefix prefix of the thread names
+     * @return factory of virtual or daemon platform threads, depending on the mode
+     */
+    public ThreadFactory threadFactory(String prefix) {
+        if (mode == Mode.VIRTUAL) {
+            ThreadFactory factory = virtualThreadFactory(prefix);
+            if (factory != null) {
+                return factory;
+            }
+        }
+        return platformThreadFactory(prefix);
+    }
+
+    /**
+     * Runs the action for each item, at most <code>parallelism</code> items at the same time. The calling thread
+     * takes part in the work, so it doesn't wait idle for a free thread of the blocking executor. If some of the
+     * actions fail, the others still run and the first failure is rethrown at the end.
+     *
+     * @param items       items to process
+     * @param parallelism max number of items processed at the same time
+     * @param action      action to run for each item
+     * @param <T>         type of the items
+     */
+    public <T> void forEachParallel(Collection<T> items, int parallelism, Consumer<T> action) {
+        final Queue<T> remaining = new ConcurrentLinkedQueue<>(items);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            T item;
+            while ((item = remaining.poll()) != null) {
+                try {
+                    action.accept(item);
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        };
+        List<Future<?>> helpers = new ArrayList<>();
+        int helperCount = Math.min(parallelism, items.size()) - 1;
+        for (int i = 0; i < helperCount; i++) {
+            try {
+                helpers.add(blocking.submit(worker));
+            } catch (RejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+        for (Future<?> helper : helpers) {
+            // the helpers that haven't started yet have nothing to do
+            if (!helper.cancel(false)) {
+                try {
+                    helper.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException | CancellationException e) {
+                    // the worker doesn't throw
+                }
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Stops accepting new tasks and waits for the running ones, the tasks that don't finish in time are interrupted.
+     *
+     * @param timeoutMs how long to wait for the running tasks
+     */
+    public void shutdown(long timeoutMs) {
+        scheduler.shutdownNow();
+        blocking.shutdown();
+        try {
+            if (!blocking.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                List<Runnable> dropped = blocking.shutdownNow();
+                log.warn("Executors didn't terminate in {} ms, {} task(s) were dropped", timeoutMs, dropped.size());
+            }
+        } catch (InterruptedException e) {
+            blocking.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory platformThreadFactory(String prefix) {
+        final AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    // virtual threads are created via reflection, so that the library still runs on java 8
+
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor(String prefix) {
+        ThreadFactory factory = virtualThreadFactory(prefix);
+        if (factory == null) {
+            return null;
+        }
+        try {
+            Method method = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) method.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Delegating executor that exports the metrics about the tasks.
+     */
+    private static class InstrumentedExecutorService extends AbstractExecutorService {
+        private final String pool;
+        private final ExecutorService delegate;
+
+        InstrumentedExecutorService(String pool, ExecutorService delegate) {
+            this.pool = pool;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            submitted.labels(pool).inc();
+            queued.labels(pool).inc();
+            try {
+                delegate.execute(() -> {
+                    queued.labels(pool).dec();
+                    active.labels(pool).inc();
+                    Histogram.Timer timer = duration.labels(pool).startTimer();
+                    try {
+                        command.run();
+                    } finally {
+                        timer.observeDuration();
+                        active.labels(pool).dec();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                queued.labels(pool).dec();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
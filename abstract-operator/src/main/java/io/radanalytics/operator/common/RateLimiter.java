@@ -0,0 +1,80 @@
+package io.radanalytics.operator.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes how long a failed key should wait before it's retried. The delay is the maximum of
+ * <ul>
+ *     <li>per-key exponential backoff: <code>baseDelayMs * 2^(failures - 1)</code>, capped by <code>maxDelayMs</code></li>
+ *     <li>global token bucket shared by all the keys, so that many failures at once don't stampede the API server</li>
+ * </ul>
+ */
+public class RateLimiter {
+
+    public static final long DEFAULT_BASE_DELAY_MS = 500;
+    public static final long DEFAULT_MAX_DELAY_MS = 300_000;
+    public static final double DEFAULT_QPS = 10;
+    public static final int DEFAULT_BURST = 100;
+
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final double qps;
+    private final int burst;
+
+    private final Map<String, Integer> failures = new HashMap<>();
+    private double tokens;
+    private long lastRefillNanos;
+
+    public RateLimiter() {
+        this(DEFAULT_BASE_DELAY_MS, DEFAULT_MAX_DELAY_MS, DEFAULT_QPS, DEFAULT_BURST);
+    }
+
+    public RateLimiter(long baseDelayMs, long maxDelayMs, double qps, int burst) {
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.qps = qps;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Records another failure of the key and returns the delay after which it can be retried.
+     *
+     * @param key key of the failed item
+     * @return delay in milliseconds
+     */
+    public synchronized long when(String key) {
+        int attempt = failures.merge(key, 1, Integer::sum);
+        long backoff = attempt >= 31 ? maxDelayMs : Math.min(maxDelayMs, baseDelayMs << (attempt - 1));
+        return Math.max(backoff, reserveToken());
+    }
+
+    private long reserveToken() {
+        long now = System.nanoTime();
+        double elapsedS = (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        lastRefillNanos = now;
+        tokens = Math.min(burst, tokens + elapsedS * qps);
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / qps * 1000);
+    }
+
+    /**
+     * @param key key of the item
+     * @return how many times the key has failed since it was last forgotten
+     */
+    public synchronized int attempts(String key) {
+        return failures.getOrDefault(key, 0);
+    }
+
+    /**
+     * Resets the backoff of the key, typically after it has been handled successfully.
+     *
+     * @param key key of the item
+     */
+    public synchronized void forget(String key) {
+        failures.remove(key);
+    }
+}
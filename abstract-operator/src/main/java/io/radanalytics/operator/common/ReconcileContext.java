@@ -0,0 +1,47 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+import org.slf4j.Logger;
+
+/**
+ * Immutable context of one reconciliation, it carries everything the handlers need to know about the namespace
+ * they work in. Unlike the fields of the (singleton) operator, it can be safely used from several threads, so the
+ * namespaces can be reconciled concurrently.
+ */
+public final class ReconcileContext {
+
+    private final String namespace;
+    private final KubernetesClient client;
+    private final Logger log;
+
+    public ReconcileContext(String namespace, KubernetesClient client, Logger log) {
+        this.namespace = namespace;
+        this.client = client;
+        this.log = log;
+    }
+
+    /**
+     * @return namespace of the reconciled resources
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * @return client shared by the operator
+     */
+    public KubernetesClient getClient() {
+        return client;
+    }
+
+    public Logger getLog() {
+        return log;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconcileContext{" +
+                "namespace='" + namespace + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,252 @@
+package io.radanalytics.operator.common;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Central scheduler of the full reconciliations (sweeps) of all the operators in all the namespaces.
+ * <ul>
+ *     <li>the first sweep runs shortly after the start, as soon as the operator's caches are synced</li>
+ *     <li>the following sweeps are spread randomly across the interval and each period is jittered, so that the
+ *     sweeps of many operators/namespaces don't hit the API server at the same time</li>
+ *     <li>at most <code>maxConcurrent</code> sweeps run at the same time, the others wait</li>
+ *     <li>{@link Registration#requestNow()} asks for an out-of-band sweep (e.g. after a watch was restarted), these
+ *     go before the periodic ones</li>
+ * </ul>
+ */
+public class ReconciliationScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationScheduler.class.getName());
+
+    public static final double DEFAULT_JITTER = 0.1;
+    private static final long INITIAL_DELAY_MS = 2_000;
+    private static final long NOT_SYNCED_RETRY_MS = 1_000;
+
+    private static final String PREFIX = "operator_full_reconciliation_";
+
+    private static final Counter sweeps = Counter.build()
+            .name(PREFIX + "sweeps_total")
+            .help("Full reconciliations that were started, by trigger (periodic or immediate).")
+            .labelNames("trigger")
+            .register();
+
+    private static final Gauge waiting = Gauge.build()
+            .name(PREFIX + "sweeps_waiting")
+            .help("Full reconciliations waiting for a free slot.")
+            .register();
+
+    private static final Gauge running = Gauge.build()
+            .name(PREFIX + "sweeps_running")
+            .help("Full reconciliations that are running.")
+            .register();
+
+    private static final Histogram duration = Histogram.build()
+            .name(PREFIX + "duration_seconds")
+            .help("How long the full reconciliations took.")
+            .buckets(0.1, 0.5, 1, 5, 10, 30, 60, 300)
+            .register();
+
+    private final int maxConcurrent;
+    private final double jitter;
+    private final AtomicLong sequence = new AtomicLong();
+    private final PriorityQueue<Request> queue = new PriorityQueue<>(
+            Comparator.comparing((Request r) -> !r.immediate).thenComparingLong(r -> r.seq));
+    private int runningSweeps = 0;
+
+    public ReconciliationScheduler(int maxConcurrent) {
+        this(maxConcurrent, DEFAULT_JITTER);
+    }
+
+    public ReconciliationScheduler(int maxConcurrent, double jitter) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.jitter = jitter;
+    }
+
+    /**
+     * Registers a periodic sweep.
+     *
+     * @param name      name for the logs, e.g. operator and namespace
+     * @param intervalS average number of seconds between two sweeps
+     * @param ready     whether the sweep can run (caches are synced), the first sweep is retried every second until
+     *                  this returns true
+     * @param sweep     the full reconciliation
+     * @return registration that can be used for requesting an immediate sweep
+     */
+    public Registration register(String name, long intervalS, BooleanSupplier ready, Runnable sweep) {
+        Registration registration = new Registration(name, TimeUnit.SECONDS.toMillis(intervalS), ready, sweep);
+        registration.schedule(INITIAL_DELAY_MS + ThreadLocalRandom.current().nextLong(1_000));
+        return registration;
+    }
+
+    private synchronized void submit(Registration registration, boolean immediate) {
+        if (registration.cancelled) {
+            return;
+        }
+        if (registration.running) {
+            // run once more right after the current sweep, the state may have changed in the meantime
+            registration.rerun |= immediate;
+            return;
+        }
+        if (registration.queued != null) {
+            if (immediate && !registration.queued.immediate) {
+                queue.remove(registration.queued);
+                registration.queued = null;
+            } else {
+                return;
+            }
+        }
+        Request request = new Request(registration, immediate, sequence.incrementAndGet());
+        registration.queued = request;
+        queue.add(request);
+        waiting.set(queue.size());
+        dispatch();
+    }
+
+    private synchronized void dispatch() {
+        while (runningSweeps < maxConcurrent && !queue.isEmpty()) {
+            Request request = queue.poll();
+            Registration registration = request.registration;
+            registration.queued = null;
+            registration.running = true;
+            runningSweeps++;
+            running.set(runningSweeps);
+            waiting.set(queue.size());
+            try {
+                OperatorExecutors.get().blocking().execute(() -> run(request));
+            } catch (RuntimeException e) {
+                // executor has been shut down
+                finished(registration);
+                return;
+            }
+        }
+    }
+
+    private void run(Request request) {
+        Registration registration = request.registration;
+        sweeps.labels(request.immediate ? "immediate" : "periodic").inc();
+        Histogram.Timer timer = duration.startTimer();
+        try {
+            if (registration.ready.getAsBoolean()) {
+                registration.sweep.run();
+            } else {
+                log.info("skipping full reconciliation for {}, the cache hasn't been synced yet", registration.name);
+            }
+        } catch (Throwable t) {
+            log.warn("error during full reconciliation for {}: {}", registration.name, t.getMessage(), t);
+        } finally {
+            timer.observeDuration();
+            finished(registration);
+        }
+    }
+
+    private synchronized void finished(Registration registration) {
+        registration.running = false;
+        runningSweeps--;
+        running.set(runningSweeps);
+        if (registration.rerun) {
+            registration.rerun = false;
+            submit(registration, true);
+        }
+        dispatch();
+    }
+
+    private long nextDelayMs(long intervalMs) {
+        double factor = 1 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * jitter;
+        return Math.max(1, (long) (intervalMs * factor));
+    }
+
+    private static class Request {
+        private final Registration registration;
+        private final boolean immediate;
+        private final long seq;
+
+        Request(Registration registration, boolean immediate, long seq) {
+            this.registration = registration;
+            this.immediate = immediate;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * Handle for one registered sweep.
+     */
+    public class Registration {
+        private final String name;
+        private final long intervalMs;
+        private final BooleanSupplier ready;
+        private final Runnable sweep;
+
+        // guarded by the scheduler
+        private Request queued;
+        private boolean running;
+        private boolean rerun;
+
+        private volatile boolean started = false;
+        private volatile boolean cancelled = false;
+        private volatile ScheduledFuture<?> timer;
+
+        private Registration(String name, long intervalMs, BooleanSupplier ready, Runnable sweep) {
+            this.name = name;
+            this.intervalMs = intervalMs;
+            this.ready = ready;
+            this.sweep = sweep;
+        }
+
+        private void schedule(long delayMs) {
+            if (!cancelled) {
+                timer = OperatorExecutors.get().scheduler().schedule(this::onTimer, delayMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void onTimer() {
+            if (!started) {
+                if (!ready.getAsBoolean()) {
+                    schedule(NOT_SYNCED_RETRY_MS);
+                    return;
+                }
+                started = true;
+                submit(this, false);
+                // random phase, so that the periodic sweeps are spread across the whole interval
+                long phase = intervalMs / 10 + ThreadLocalRandom.current().nextLong(Math.max(1, intervalMs * 9 / 10));
+                log.info("the next full reconciliation for {} is happening in {} seconds", name, phase / 1000);
+                schedule(phase);
+            } else {
+                submit(this, false);
+                schedule(nextDelayMs(intervalMs));
+            }
+        }
+
+        /**
+         * Requests a sweep as soon as possible, before the waiting periodic ones. If the sweep is running right now,
+         * another one is run after it finishes.
+         */
+        public void requestNow() {
+            if (started) {
+                submit(this, true);
+            }
+        }
+
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> t = timer;
+            if (t != null) {
+                t.cancel(false);
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
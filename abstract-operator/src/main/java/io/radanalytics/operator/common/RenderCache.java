@@ -0,0 +1,124 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import io.radanalytics.operator.resource.FingerprintHelper;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of the rendered resources keyed by the fingerprint of the entity's spec and by the environment
+ * the rendering depends on (default image, presence of a config map, OpenShift, owner reference, ..). The full
+ * reconciliations and the repeated events of unchanged entities get the resources rendered before instead of building
+ * them again. The rendering has to be a pure function of the entity and the environment, otherwise the cache would
+ * return stale resources.
+ *
+ * The cached lists are shared among the callers and must be treated as read-only.
+ *
+ * @param <T> entity info class
+ */
+public class RenderCache<T extends EntityInfo> {
+
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    private static final Counter hits = Counter.build()
+            .name("operator_render_cache_hits_total")
+            .help("How many renderings of the resources were served from the cache.")
+            .labelNames("kind")
+            .register();
+
+    private static final Counter misses = Counter.build()
+            .name("operator_render_cache_misses_total")
+            .help("How many times the resources had to be rendered, because they were not in the render cache.")
+            .labelNames("kind")
+            .register();
+
+    private static final Histogram renderTime = Histogram.build()
+            .name("operator_render_seconds")
+            .help("How long it took to render the resources of one entity on a cache miss.")
+            .labelNames("kind")
+            .buckets(0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5)
+            .register();
+
+    private static final class Key {
+        private final String spec;
+        private final Object environment;
+
+        private Key(String spec, Object environment) {
+            this.spec = spec;
+            this.environment = environment;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            return spec.equals(key.spec) && Objects.equals(environment, key.environment);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(spec, environment);
+        }
+    }
+
+    private final String kind;
+    private final Map<Key, KubernetesResourceList<? extends HasMetadata>> entries;
+
+    public RenderCache(String kind) {
+        this(kind, DEFAULT_MAX_SIZE);
+    }
+
+    public RenderCache(String kind, int maxSize) {
+        this.kind = kind;
+        this.entries = new LinkedHashMap<Key, KubernetesResourceList<? extends HasMetadata>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, KubernetesResourceList<? extends HasMetadata>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the resources rendered for the same spec and environment or renders them and caches the result.
+     *
+     * @param entity      entity to render
+     * @param environment everything else the rendering depends on, it must implement <code>equals</code> and
+     *                    <code>hashCode</code>
+     * @param renderer    rendering function
+     * @return rendered resources
+     */
+    public KubernetesResourceList<? extends HasMetadata> get(T entity, Object environment,
+                                                             Function<T, KubernetesResourceList<? extends HasMetadata>> renderer) {
+        Key key = new Key(FingerprintHelper.fingerprint(entity), environment);
+        KubernetesResourceList<? extends HasMetadata> cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null) {
+            hits.labels(kind).inc();
+            return cached;
+        }
+        misses.labels(kind).inc();
+        // render outside of the lock, the same entity may be rendered twice at worst
+        Histogram.Timer timer = renderTime.labels(kind).startTimer();
+        KubernetesResourceList<? extends HasMetadata> rendered = renderer.apply(entity);
+        timer.observeDuration();
+        synchronized (entries) {
+            entries.put(key, rendered);
+        }
+        return rendered;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package io.radanalytics.operator.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.autoscaling.v1.Scale;
+import io.fabric8.kubernetes.api.model.autoscaling.v1.ScaleBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.base.PatchContext;
+import io.fabric8.kubernetes.client.dsl.base.PatchType;
+import io.fabric8.kubernetes.client.utils.Serialization;
+import io.fabric8.zjsonpatch.JsonDiff;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import io.radanalytics.operator.resource.FingerprintHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Writes the rendered resources to the cluster with as little traffic and disruption as possible:
+ * <ul>
+ *     <li>an object whose fingerprint annotation (see {@link FingerprintHelper}) matches the live one is skipped</li>
+ *     <li>a missing object is created</li>
+ *     <li>an object that is being deleted is not touched, the write fails and is retried once it's gone, so the new
+ *     object is created instead of patching the old one that is about to disappear</li>
+ *     <li>otherwise a minimal JSON patch is sent: the rendered fields are merged onto the live object and only the
+ *     difference is patched, so the fields defaulted or owned by others (status, clusterIP, ..) are left alone and
+ *     there is no resourceVersion to conflict on</li>
+ *     <li>like {@code kubectl apply}, each written object remembers its rendering in the last-applied annotation, the
+ *     fields that were rendered last time, but are not rendered anymore (e.g. a removed label), are removed</li>
+ *     <li>if the change can't be patched (an immutable field), only that one object is deleted and created again</li>
+ * </ul>
+ * Worker scaling goes through the scale subresource, see {@link #scaleReplicationController}.
+ */
+public class ResourceApplier {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceApplier.class.getName());
+
+    public static final String LAST_APPLIED_ANNOTATION = "last-applied";
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int HTTP_UNPROCESSABLE_ENTITY = 422;
+
+    private static final Counter writes = Counter.build()
+            .name("operator_resource_writes_total")
+            .help("Rendered resources by kind and result (created, patched, scaled, recreated, deferred when the " +
+                    "live object was being deleted, skipped when it was the same).")
+            .labelNames("kind", "result")
+            .register();
+
+    private static final Counter conflicts = Counter.build()
+            .name("operator_resource_write_conflicts_total")
+            .help("Writes that failed with 409 Conflict and were retried, by kind.")
+            .labelNames("kind")
+            .register();
+
+    private static final Histogram patchBytes = Histogram.build()
+            .name("operator_resource_patch_bytes")
+            .help("Size of the JSON patches sent to the API server.")
+            .buckets(64, 256, 1024, 4096, 16384, 65536)
+            .register();
+
+    private final String prefix;
+
+    /**
+     * @param prefix prefix of the operator's labels and annotations, e.g. {@code radanalytics.io/}
+     */
+    public ResourceApplier(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * @param client    client
+     * @param namespace namespace of the resources
+     * @param list      rendered and stamped resources
+     * @return number of resources that had to be written
+     */
+    public int apply(KubernetesClient client, String namespace, KubernetesResourceList<? extends HasMetadata> list) {
+        int applied = 0;
+        for (HasMetadata desired : list.getItems()) {
+            if (apply(client, namespace, desired)) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * @param client    client
+     * @param namespace namespace of the resource
+     * @param desired   rendered and stamped resource
+     * @return true if the resource had to be written
+     */
+    public boolean apply(KubernetesClient client, String namespace, HasMetadata desired) {
+        String kind = desired.getKind();
+        // the rendered object may be cached, the annotation is set on a copy
+        HasMetadata applied = withLastApplied(desired, annotation());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return applyOnce(client, namespace, desired, applied);
+            } catch (KubernetesClientException e) {
+                if (e.getCode() == HttpURLConnection.HTTP_CONFLICT && attempt < MAX_ATTEMPTS) {
+                    // created or deleted in the meantime, look at the live object again
+                    conflicts.labels(kind).inc();
+                    log.debug("conflict when writing {} {}, retrying", kind, desired.getMetadata().getName());
+                } else if (e.getCode() == HTTP_UNPROCESSABLE_ENTITY) {
+                    log.info("{} {} can't be patched ({}), recreating it", kind, desired.getMetadata().getName(),
+                            e.getMessage());
+                    client.resource(applied).inNamespace(namespace).delete();
+                    client.resource(applied).inNamespace(namespace).createOrReplace();
+                    writes.labels(kind, "recreated").inc();
+                    return true;
+                } else {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private boolean applyOnce(KubernetesClient client, String namespace, HasMetadata desired, HasMetadata applied) {
+        String kind = desired.getKind();
+        HasMetadata live = client.resource(applied).inNamespace(namespace).get();
+        if (live == null) {
+            client.resource(applied).inNamespace(namespace).create();
+            writes.labels(kind, "created").inc();
+            return true;
+        }
+        if (live.getMetadata().getDeletionTimestamp() != null) {
+            writes.labels(kind, "deferred").inc();
+            throw new IllegalStateException(kind + " " + desired.getMetadata().getName() + " is being deleted");
+        }
+        Optional<String> fingerprint = FingerprintHelper.getFingerprint(desired, prefix);
+        if (fingerprint.isPresent() && fingerprint.equals(FingerprintHelper.getFingerprint(live, prefix))) {
+            log.debug("{} {} hasn't changed, skipping", kind, desired.getMetadata().getName());
+            writes.labels(kind, "skipped").inc();
+            return false;
+        }
+        JsonNode patch = diff(live, applied, annotation());
+        if (patch.size() == 0) {
+            writes.labels(kind, "skipped").inc();
+            return false;
+        }
+        String json = patch.toString();
+        patchBytes.observe(json.length());
+        client.resource(applied).inNamespace(namespace).patch(PatchContext.of(PatchType.JSON), json);
+        writes.labels(kind, "patched").inc();
+        return true;
+    }
+
+    private String annotation() {
+        return prefix + LAST_APPLIED_ANNOTATION;
+    }
+
+    /**
+     * @param desired    rendered object
+     * @param annotation name of the last-applied annotation
+     * @return copy of the rendered object with its JSON in the last-applied annotation
+     */
+    static HasMetadata withLastApplied(HasMetadata desired, String annotation) {
+        ObjectNode json = Serialization.jsonMapper().valueToTree(desired);
+        String rendered = json.toString();
+        ObjectNode metadata = json.with("metadata");
+        metadata.with("annotations").put(annotation, rendered);
+        return Serialization.jsonMapper().convertValue(json, desired.getClass());
+    }
+
+    /**
+     * @param live       live object
+     * @param desired    rendered object with the last-applied annotation, see {@link #withLastApplied}
+     * @param annotation name of the last-applied annotation
+     * @return JSON patch that sets the rendered fields on the live object, removes the fields that were rendered
+     * last time, but are not rendered anymore, and touches nothing else
+     */
+    static JsonNode diff(HasMetadata live, HasMetadata desired, String annotation) {
+        JsonNode source = Serialization.jsonMapper().valueToTree(live);
+        JsonNode rendered = Serialization.jsonMapper().valueToTree(desired);
+        JsonNode target = merge(source.deepCopy(), rendered);
+        JsonNode lastApplied = lastApplied(live, annotation);
+        if (lastApplied != null) {
+            prune(target, lastApplied, rendered);
+        }
+        return JsonDiff.asJson(source, target);
+    }
+
+    private static JsonNode lastApplied(HasMetadata live, String annotation) {
+        Map<String, String> annotations = live.getMetadata().getAnnotations();
+        String json = annotations == null ? null : annotations.get(annotation);
+        if (json == null) {
+            // written before the annotation was introduced (or by someone else), nothing is removed
+            return null;
+        }
+        try {
+            return Serialization.jsonMapper().readTree(json);
+        } catch (IOException e) {
+            log.warn("unable to parse the {} annotation of {} {}", annotation, live.getKind(),
+                    live.getMetadata().getName());
+            return null;
+        }
+    }
+
+    /**
+     * Removes the fields of the last rendering that are missing in the new one. It follows {@link #merge}, so the
+     * arrays are pruned element by element only if they were merged that way.
+     */
+    private static void prune(JsonNode target, JsonNode lastApplied, JsonNode desired) {
+        if (target instanceof ObjectNode && lastApplied instanceof ObjectNode && desired instanceof ObjectNode) {
+            for (Iterator<String> it = lastApplied.fieldNames(); it.hasNext(); ) {
+                String field = it.next();
+                if (desired.has(field)) {
+                    prune(target.get(field), lastApplied.get(field), desired.get(field));
+                } else {
+                    ((ObjectNode) target).remove(field);
+                }
+            }
+        } else if (target instanceof ArrayNode && lastApplied instanceof ArrayNode && desired instanceof ArrayNode
+                && target.size() == desired.size() && lastApplied.size() == desired.size()) {
+            for (int i = 0; i < desired.size(); i++) {
+                prune(target.get(i), lastApplied.get(i), desired.get(i));
+            }
+        }
+    }
+
+    /**
+     * Merges the rendered fields onto the live ones. Objects are merged recursively, arrays of the same length are
+     * merged element by element (e.g. the containers keep their defaulted fields), anything else is replaced.
+     */
+    private static JsonNode merge(JsonNode live, JsonNode desired) {
+        if (live instanceof ObjectNode && desired instanceof ObjectNode) {
+            ObjectNode result = (ObjectNode) live;
+            for (Iterator<Map.Entry<String, JsonNode>> it = desired.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = it.next();
+                JsonNode current = result.get(field.getKey());
+                result.set(field.getKey(), current == null ? field.getValue() : merge(current, field.getValue()));
+            }
+            return result;
+        }
+        if (live instanceof ArrayNode && desired instanceof ArrayNode && live.size() == desired.size()) {
+            ArrayNode result = (ArrayNode) live;
+            for (int i = 0; i < desired.size(); i++) {
+                result.set(i, merge(result.get(i), desired.get(i)));
+            }
+            return result;
+        }
+        return desired;
+    }
+
+    /**
+     * Scales the replication controller through its scale subresource, the rest of the object is not sent at all.
+     *
+     * @param client    client
+     * @param namespace namespace of the replication controller
+     * @param name      name of the replication controller
+     * @param replicas  desired number of replicas
+     */
+    public void scaleReplicationController(KubernetesClient client, String namespace, String name, int replicas) {
+        Scale scale = new ScaleBuilder()
+                .withNewMetadata().withName(name).withNamespace(namespace).endMetadata()
+                .withNewSpec().withReplicas(replicas).endSpec()
+                .build();
+        client.replicationControllers().inNamespace(namespace).withName(name).scale(scale);
+        writes.labels("ReplicationController", "scaled").inc();
+    }
+}
@@ -0,0 +1,115 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import static io.radanalytics.operator.common.OperatorConfig.ALL_NAMESPACES;
+
+/**
+ * In-memory store of the Kubernetes resources of one kind that is kept up to date by the {@link ResourceInformer}.
+ * Objects are keyed by <code>namespace/name</code> and additionally indexed by namespace, so that the reconciliation
+ * and the handlers can read the current state of the cluster without calling the API server.
+ *
+ * Reads are lock-free; writes are expected to come from the informer only. A re-list builds new maps and swaps them
+ * in at once, so the readers never see an empty or partially filled cache.
+ *
+ * @param <R> type of the cached resource
+ */
+public class ResourceCache<R extends HasMetadata> {
+
+    /**
+     * The cached objects with their namespace index, replaced as a whole by {@link #replace(Collection)}.
+     */
+    private static final class Store<R> {
+        private final ConcurrentMap<String, R> items = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, Set<String>> namespaceIndex = new ConcurrentHashMap<>();
+
+        private R put(String namespace, String key, R resource) {
+            namespaceIndex.computeIfAbsent(namespace, ns -> ConcurrentHashMap.newKeySet()).add(key);
+            return items.put(key, resource);
+        }
+    }
+
+    private volatile Store<R> store = new Store<>();
+
+    public static String key(String namespace, String name) {
+        return namespace + "/" + name;
+    }
+
+    public static String key(HasMetadata resource) {
+        return key(resource.getMetadata().getNamespace(), resource.getMetadata().getName());
+    }
+
+    synchronized R put(R resource) {
+        return store.put(resource.getMetadata().getNamespace(), key(resource), resource);
+    }
+
+    synchronized R remove(R resource) {
+        Store<R> current = store;
+        String key = key(resource);
+        String namespace = resource.getMetadata().getNamespace();
+        Set<String> keys = current.namespaceIndex.get(namespace);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                current.namespaceIndex.remove(namespace);
+            }
+        }
+        return current.items.remove(key);
+    }
+
+    /**
+     * Replaces the whole content of the cache, typically with the result of a LIST call. The new content is built
+     * aside and becomes visible to the readers at once.
+     *
+     * @param resources new content of the cache
+     */
+    synchronized void replace(Collection<R> resources) {
+        Store<R> replacement = new Store<>();
+        resources.forEach(r -> replacement.put(r.getMetadata().getNamespace(), key(r), r));
+        store = replacement;
+    }
+
+    public R get(String namespace, String name) {
+        return store.items.get(key(namespace, name));
+    }
+
+    public R get(String key) {
+        return store.items.get(key);
+    }
+
+    /**
+     * @return all the cached resources
+     */
+    public List<R> list() {
+        return new ArrayList<>(store.items.values());
+    }
+
+    /**
+     * @param namespace namespace or <code>"*"</code> for all the namespaces
+     * @return cached resources in the given namespace
+     */
+    public List<R> list(String namespace) {
+        if (namespace == null || ALL_NAMESPACES.equals(namespace)) {
+            return list();
+        }
+        Store<R> current = store;
+        Set<String> keys = current.namespaceIndex.getOrDefault(namespace, Collections.emptySet());
+        return keys.stream().map(current.items::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * @return namespaces that have at least one cached resource
+     */
+    public Set<String> namespaces() {
+        return new HashSet<>(store.namespaceIndex.keySet());
+    }
+
+    public int size() {
+        return store.items.size();
+    }
+}
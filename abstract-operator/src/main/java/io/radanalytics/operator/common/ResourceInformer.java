@@ -0,0 +1,390 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.ListOptions;
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
+import io.prometheus.client.Counter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Informer-style list+watch for one kind of Kubernetes resources. It performs one LIST to fill the
+ * {@link ResourceCache}, then opens a single watch from the returned resourceVersion and keeps the cache
+ * up to date. The registered listeners are notified about each change after the cache has been updated.
+ *
+ * The last seen resourceVersion (from events and bookmarks) is remembered, so when the watch is closed it's resumed
+ * from that point without losing any events. Only if the API server no longer has that version (HTTP 410 Gone),
+ * the resources are re-listed and the difference against the cache is delivered to the listeners as
+ * ADDED/MODIFIED/DELETED events.
+ *
+ * Every <code>resyncIntervalS</code> seconds the cache is re-listed as a safety net and the differences are sent to
+ * the listeners, all the other reads should go to {@link #getCache()}. The events and the re-lists are applied under
+ * one lock and an event that is older than the cached state (or than the last LIST) is dropped, so a LIST never
+ * overwrites a newer event and a late event never resurrects a deleted object.
+ *
+ * @param <R> type of the watched resource
+ */
+public class ResourceInformer<R extends HasMetadata> {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceInformer.class.getName());
+
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private static final Counter watchRestarts = Counter.build()
+            .name("operator_informer_watch_restarts_total")
+            .help("How many times the informer watch was restarted, by type (resume or relist after 410 Gone).")
+            .labelNames("kind", "type")
+            .register();
+
+    /**
+     * Callback that is notified when a watched resource changes.
+     *
+     * @param <R> type of the watched resource
+     */
+    public interface Listener<R> {
+        void onEvent(Watcher.Action action, R resource);
+    }
+
+    /**
+     * Abstraction of the LIST and WATCH calls for the watched kind.
+     *
+     * @param <R> type of the watched resource
+     */
+    public interface ListerWatcher<R extends HasMetadata> {
+        KubernetesResourceList<R> list();
+
+        Watch watch(ListOptions options, Watcher<R> watcher);
+    }
+
+    private final String kind;
+    private final String namespace;
+    private final ListerWatcher<R> listerWatcher;
+    private final long resyncIntervalS;
+    private final ResourceCache<R> cache = new ResourceCache<>();
+    private final List<Listener<R>> listeners = new CopyOnWriteArrayList<>();
+    private final List<Runnable> restartListeners = new CopyOnWriteArrayList<>();
+    private volatile Predicate<R> filter = resource -> true;
+
+    private volatile Watch watch;
+    private volatile String lastResourceVersion;
+    // resourceVersion of the last LIST, the events up to this version are already reflected in the cache
+    private volatile String listResourceVersion;
+    private volatile boolean synced = false;
+    private volatile boolean closed = false;
+    private volatile ScheduledFuture<?> resync;
+    private volatile int reconnectAttempts = 0;
+
+    public ResourceInformer(String kind, String namespace, ListerWatcher<R> listerWatcher, long resyncIntervalS) {
+        this.kind = kind;
+        this.namespace = namespace;
+        this.listerWatcher = listerWatcher;
+        this.resyncIntervalS = resyncIntervalS;
+    }
+
+    /**
+     * Creates the {@link ListerWatcher} from the fabric8 DSL, e.g. <code>client.configMaps().inNamespace(ns)</code>.
+     *
+     * @param operation filtered operation on the watched resources
+     * @param <R>       type of the watched resource
+     * @return lister-watcher backed by the operation
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <R extends HasMetadata> ListerWatcher<R> listerWatcher(FilterWatchListDeletable operation) {
+        return new ListerWatcher<R>() {
+            @Override
+            public KubernetesResourceList<R> list() {
+                return (KubernetesResourceList<R>) operation.list();
+            }
+
+            @Override
+            public Watch watch(ListOptions options, Watcher<R> watcher) {
+                return operation.watch(options, watcher);
+            }
+        };
+    }
+
+    public ResourceInformer<R> addListener(Listener<R> listener) {
+        listeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Client-side filter of the watched resources, the resources that don't pass it are neither cached nor sent to
+     * the listeners. It's useful when one cluster-wide watch serves several namespaces. It has to be set before the
+     * informer is started.
+     *
+     * @param filter predicate the cached resources have to match
+     * @return this informer
+     */
+    public ResourceInformer<R> withFilter(Predicate<R> filter) {
+        this.filter = filter;
+        return this;
+    }
+
+    /**
+     * Registers a callback that is run each time the watch has been restarted (e.g. after the connection to the API
+     * server was lost), the operator may want to check its resources out of band.
+     *
+     * @param listener callback
+     * @return this informer
+     */
+    public ResourceInformer<R> addRestartListener(Runnable listener) {
+        restartListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Lists the resources, fills the cache and starts the watch.
+     *
+     * @return future that is completed once the cache is synced and the watch is running
+     */
+    public CompletableFuture<ResourceInformer<R>> start() {
+        return CompletableFuture.supplyAsync(() -> {
+            listAndWatch();
+            if (resyncIntervalS > 0) {
+                resync = OperatorExecutors.get().scheduler().scheduleWithFixedDelay(
+                        () -> OperatorExecutors.get().blocking().execute(this::resync),
+                        resyncIntervalS, resyncIntervalS, TimeUnit.SECONDS);
+            }
+            return this;
+        }, OperatorExecutors.get().blocking());
+    }
+
+    private synchronized void listAndWatch() {
+        if (closed) {
+            return;
+        }
+        relist(false);
+        startWatch();
+        log.info("{} informer synced {} objects in namespace {}", kind, cache.size(), namespace);
+    }
+
+    private synchronized void startWatch() {
+        if (closed) {
+            return;
+        }
+        ListOptions options = new ListOptionsBuilder()
+                .withResourceVersion(lastResourceVersion)
+                .withAllowWatchBookmarks(true)
+                .build();
+        this.watch = listerWatcher.watch(options, new Watcher<R>() {
+            @Override
+            public void eventReceived(Action action, R resource) {
+                reconnectAttempts = 0;
+                handleEvent(action, resource);
+            }
+
+            @Override
+            public void onClose(WatcherException e) {
+                if (e == null) {
+                    log.info("{} watch closed in namespace {}", kind, namespace);
+                } else if (e.isHttpGone()) {
+                    log.warn("{} watch in namespace {}: resourceVersion {} is gone, re-listing", kind, namespace,
+                            lastResourceVersion);
+                    restartWatch(true);
+                } else {
+                    log.error("{} watch closed with exception in namespace {}", kind, namespace, e);
+                    restartWatch(false);
+                }
+            }
+        });
+    }
+
+    /**
+     * Lists the resources and replaces the content of the cache.
+     *
+     * @param notify if true, the difference between the old and the new content is sent to the listeners
+     */
+    private synchronized void relist(boolean notify) {
+        KubernetesResourceList<R> list = listerWatcher.list();
+        List<R> items = list.getItems().stream().filter(filter).collect(Collectors.toList());
+        Map<String, R> old = new HashMap<>();
+        if (notify) {
+            cache.list().forEach(item -> old.put(ResourceCache.key(item), item));
+        }
+        cache.replace(items);
+        lastResourceVersion = list.getMetadata() == null ? null : list.getMetadata().getResourceVersion();
+        listResourceVersion = lastResourceVersion;
+        synced = true;
+        if (!notify) {
+            return;
+        }
+        for (R item : items) {
+            R previous = old.remove(ResourceCache.key(item));
+            if (previous == null) {
+                notifyListeners(Watcher.Action.ADDED, item);
+            } else if (!Objects.equals(previous.getMetadata().getResourceVersion(),
+                    item.getMetadata().getResourceVersion())) {
+                notifyListeners(Watcher.Action.MODIFIED, item);
+            }
+        }
+        old.values().forEach(item -> notifyListeners(Watcher.Action.DELETED, item));
+    }
+
+    private synchronized void handleEvent(Watcher.Action action, R resource) {
+        if (action != Watcher.Action.BOOKMARK && action != Watcher.Action.ERROR && !filter.test(resource)) {
+            lastResourceVersion = resource.getMetadata().getResourceVersion();
+            return;
+        }
+        if ((action == Watcher.Action.ADDED || action == Watcher.Action.MODIFIED || action == Watcher.Action.DELETED)
+                && isStale(resource)) {
+            log.debug("Skipping stale {} of {} {} (resourceVersion {})", action, kind, ResourceCache.key(resource),
+                    resource.getMetadata().getResourceVersion());
+            return;
+        }
+        switch (action) {
+            case ADDED:
+            case MODIFIED:
+                cache.put(resource);
+                break;
+            case DELETED:
+                cache.remove(resource);
+                break;
+            case BOOKMARK:
+                // only moves the resourceVersion from which the watch can be resumed
+                lastResourceVersion = resource.getMetadata().getResourceVersion();
+                return;
+            case ERROR:
+                log.error("Failed {} {} in namespace {}", kind, resource, namespace);
+                return;
+            default:
+                return;
+        }
+        lastResourceVersion = resource.getMetadata().getResourceVersion();
+        notifyListeners(action, resource);
+    }
+
+    /**
+     * @return true if the event is not newer than the last LIST or than the cached object
+     */
+    private boolean isStale(R resource) {
+        String version = resource.getMetadata().getResourceVersion();
+        if (isNotNewer(version, listResourceVersion)) {
+            return true;
+        }
+        R cached = cache.get(ResourceCache.key(resource));
+        return cached != null && isNotNewer(version, cached.getMetadata().getResourceVersion());
+    }
+
+    /**
+     * The resourceVersions are opaque strings, they are compared only if both are numbers (which they are with
+     * etcd). Otherwise the event is considered newer.
+     */
+    static boolean isNotNewer(String version, String than) {
+        if (version == null || than == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(version) <= Long.parseLong(than);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void notifyListeners(Watcher.Action action, R resource) {
+        listeners.forEach(listener -> listener.onEvent(action, resource));
+    }
+
+    /**
+     * Resumes the watch from the last seen resourceVersion. If the version is no longer available, the resources are
+     * re-listed and the changes that happened in the meantime are sent to the listeners.
+     *
+     * @param gone true if the API server has already responded with 410 Gone
+     */
+    private void restartWatch(boolean gone) {
+        if (closed) {
+            return;
+        }
+        long delayMs = gone ? 0 : Math.min(MAX_RECONNECT_DELAY_MS, 1000L << Math.min(reconnectAttempts, 5));
+        reconnectAttempts++;
+        OperatorExecutors.get().scheduler().schedule(() -> CompletableFuture.runAsync(() -> {
+            closeWatch();
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                boolean relist = gone || lastResourceVersion == null;
+                if (!relist) {
+                    try {
+                        startWatch();
+                        watchRestarts.labels(kind, "resume").inc();
+                        return;
+                    } catch (KubernetesClientException e) {
+                        if (e.getCode() != HttpURLConnection.HTTP_GONE) {
+                            throw e;
+                        }
+                    }
+                }
+                relist(true);
+                startWatch();
+                watchRestarts.labels(kind, "relist").inc();
+            }
+        }, OperatorExecutors.get().blocking()).thenRun(() -> {
+            log.info("{} watch restarted in namespace {} from resourceVersion {}", kind, namespace, lastResourceVersion);
+            restartListeners.forEach(Runnable::run);
+        }).exceptionally(e -> {
+            log.error("Failed to restart {} watch in namespace {}", kind, namespace, e);
+            restartWatch(false);
+            return null;
+        }), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void resync() {
+        try {
+            log.debug("resyncing {} informer in namespace {}", kind, namespace);
+            // whatever the watch has missed is delivered to the listeners
+            relist(true);
+        } catch (Exception e) {
+            log.warn("{} resync failed in namespace {}: {}", kind, namespace, e.getMessage());
+        }
+    }
+
+    private void closeWatch() {
+        Watch w = this.watch;
+        if (w != null) {
+            w.close();
+        }
+    }
+
+    public void close() {
+        closed = true;
+        if (resync != null) {
+            resync.cancel(false);
+        }
+        closeWatch();
+    }
+
+    /**
+     * @return true if the initial LIST has been done and the cache reflects the cluster state
+     */
+    public boolean hasSynced() {
+        return synced;
+    }
+
+    public ResourceCache<R> getCache() {
+        return cache;
+    }
+
+    public String getLastResourceVersion() {
+        return lastResourceVersion;
+    }
+
+    public String getKind() {
+        return kind;
+    }
+}
@@ -0,0 +1,215 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.api.model.coordination.v1.Lease;
+import io.fabric8.kubernetes.api.model.coordination.v1.LeaseBuilder;
+import io.fabric8.kubernetes.api.model.coordination.v1.LeaseList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splits the reconciled resources among the replicas of the operator. Each replica keeps its own
+ * <code>coordination.k8s.io/v1</code> Lease labelled with the shard group, the replicas whose leases are renewed
+ * form a {@link ConsistentHashRing} and each resource is reconciled only by the replica that owns its key, either the
+ * namespace ({@link Mode#NAMESPACE}) or namespace/name ({@link Mode#RESOURCE}).
+ *
+ * When a replica joins or leaves, the ring is rebuilt and the rebalance listeners are notified, so the operators can
+ * run a full reconciliation of the resources they have just taken over. A replica that can't renew its lease owns
+ * nothing, because the others have already removed it from their rings.
+ */
+public class ShardManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardManager.class.getName());
+
+    public static final String GROUP_LABEL = "radanalytics.io/shard-group";
+
+    private static final String PREFIX = "operator_shard_";
+
+    private static final Gauge members = Gauge.build()
+            .name(PREFIX + "members")
+            .help("Number of operator replicas sharing the work, as seen by this replica.")
+            .register();
+
+    private static final Counter rebalances = Counter.build()
+            .name(PREFIX + "rebalances_total")
+            .help("How many times the replicas came or went and the resources were redistributed.")
+            .register();
+
+    static final Gauge ownedResources = Gauge.build()
+            .name(PREFIX + "owned_resources")
+            .help("Resources reconciled by this replica, by kind.")
+            .labelNames("kind")
+            .register();
+
+    static final Counter events = Counter.build()
+            .name(PREFIX + "events_total")
+            .help("Events received by this replica, by kind and whether this replica owns the resource.")
+            .labelNames("kind", "owned")
+            .register();
+
+    public enum Mode {
+        NONE, NAMESPACE, RESOURCE
+    }
+
+    private final KubernetesClient client;
+    private final Mode mode;
+    private final String leaseNamespace;
+    private final String group;
+    private final String identity;
+    private final Duration leaseDuration;
+    private final List<Runnable> rebalanceListeners = new CopyOnWriteArrayList<>();
+
+    private volatile ConsistentHashRing ring;
+    private volatile long lastRenewMs = 0;
+    private volatile ScheduledFuture<?> heartbeat;
+
+    /**
+     * @param client         client used for the leases
+     * @param mode           what is distributed among the replicas
+     * @param leaseNamespace namespace of the leases, usually the namespace where the operator is deployed
+     * @param group          name of the group of replicas sharing the work
+     * @param identity       unique identity of this replica, e.g. the pod name
+     * @param leaseDuration  after how long a replica that doesn't renew its lease is removed from the ring
+     */
+    public ShardManager(KubernetesClient client, Mode mode, String leaseNamespace, String group, String identity,
+                        Duration leaseDuration) {
+        this.client = client;
+        this.mode = mode;
+        this.leaseNamespace = leaseNamespace;
+        this.group = group;
+        this.identity = identity;
+        this.leaseDuration = leaseDuration;
+        this.ring = new ConsistentHashRing(Collections.singleton(identity));
+    }
+
+    /**
+     * Starts renewing the lease of this replica and following the other members of the group.
+     */
+    public synchronized void start() {
+        if (heartbeat != null) {
+            return;
+        }
+        long periodMs = Math.max(1, leaseDuration.toMillis() / 3);
+        heartbeat = OperatorExecutors.get().scheduler().scheduleWithFixedDelay(
+                () -> OperatorExecutors.get().blocking().execute(this::heartbeat), 0, periodMs, TimeUnit.MILLISECONDS);
+        log.info("{} joins the shard group {} ({} mode)", identity, group, mode);
+    }
+
+    /**
+     * Renews the lease of this replica and rebuilds the ring if the set of live members has changed.
+     */
+    synchronized void heartbeat() {
+        try {
+            ZonedDateTime now = ZonedDateTime.now();
+            leases().createOrReplace(new LeaseBuilder()
+                    .withNewMetadata()
+                        .withName(leaseName(identity))
+                        .withNamespace(leaseNamespace)
+                        .addToLabels(GROUP_LABEL, group)
+                    .endMetadata()
+                    .withNewSpec()
+                        .withHolderIdentity(identity)
+                        .withLeaseDurationSeconds((int) leaseDuration.getSeconds())
+                        .withRenewTime(now)
+                    .endSpec()
+                    .build());
+            lastRenewMs = System.currentTimeMillis();
+
+            Set<String> alive = new TreeSet<>();
+            alive.add(identity);
+            for (Lease lease : leases().withLabel(GROUP_LABEL, group).list().getItems()) {
+                if (lease.getSpec() == null || lease.getSpec().getHolderIdentity() == null) {
+                    continue;
+                }
+                ZonedDateTime renewed = lease.getSpec().getRenewTime();
+                if (renewed != null && renewed.plus(leaseDuration).isAfter(now)) {
+                    alive.add(lease.getSpec().getHolderIdentity());
+                }
+            }
+            members.set(alive.size());
+            if (!alive.equals(ring.getMembers())) {
+                ring = new ConsistentHashRing(alive);
+                rebalances.inc();
+                log.info("shard group {} has changed, the members are {}", group, alive);
+                rebalanceListeners.forEach(Runnable::run);
+            }
+        } catch (Exception e) {
+            log.warn("unable to renew the shard lease of {} in {}: {}", identity, leaseNamespace, e.getMessage());
+        }
+    }
+
+    /**
+     * @param namespace namespace of the resource
+     * @param name      name of the resource
+     * @return true if this replica should reconcile the resource
+     */
+    public boolean owns(String namespace, String name) {
+        if (!isReady() || System.currentTimeMillis() - lastRenewMs > leaseDuration.toMillis()) {
+            // the others may not count with this replica anymore
+            return false;
+        }
+        String key = mode == Mode.NAMESPACE ? namespace : ResourceCache.key(namespace, name);
+        return identity.equals(ring.owner(key));
+    }
+
+    /**
+     * @return true once this replica has joined the group and knows the other members
+     */
+    public boolean isReady() {
+        return lastRenewMs > 0;
+    }
+
+    /**
+     * @param listener called each time the members of the group change
+     */
+    public void addRebalanceListener(Runnable listener) {
+        rebalanceListeners.add(listener);
+    }
+
+    /**
+     * Leaves the group, the other replicas take over the resources of this replica with their next heartbeat.
+     */
+    public synchronized void stop() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+        lastRenewMs = 0;
+        try {
+            leases().withName(leaseName(identity)).delete();
+        } catch (Exception e) {
+            log.warn("unable to delete the shard lease of {}: {}", identity, e.getMessage());
+        }
+    }
+
+    private NonNamespaceOperation<Lease, LeaseList, Resource<Lease>> leases() {
+        return client.resources(Lease.class, LeaseList.class).inNamespace(leaseNamespace);
+    }
+
+    private String leaseName(String member) {
+        // the identity is usually the pod name, which is a valid name already
+        return (group + "-" + member).toLowerCase().replaceAll("[^a-z0-9.-]", "-");
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public String getIdentity() {
+        return identity;
+    }
+}
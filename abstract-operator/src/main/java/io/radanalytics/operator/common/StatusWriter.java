@@ -0,0 +1,215 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import io.radanalytics.operator.common.crd.InfoClass;
+import io.radanalytics.operator.common.crd.InfoList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.HttpURLConnection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the status of the custom resources in the background, so the handlers never wait for the API server. The
+ * updates are coalesced per custom resource: while a write is pending or in flight, newer states only replace the
+ * pending one and just the latest state is written. The status is sent as a merge patch of the status subresource
+ * without a resourceVersion, so it doesn't conflict with the other writers of the custom resource. Failed writes are
+ * retried with an exponential backoff, unless the custom resource is gone.
+ */
+public class StatusWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(StatusWriter.class.getName());
+
+    static final int MAX_ATTEMPTS = 5;
+    static final long INITIAL_BACKOFF_MS = 200;
+    static final long MAX_BACKOFF_MS = 5_000;
+
+    private static final String PREFIX = "operator_status_";
+
+    private static final Counter updates = Counter.build()
+            .name(PREFIX + "updates_total")
+            .help("Status changes requested by the handlers, by kind.")
+            .labelNames("kind")
+            .register();
+
+    private static final Counter coalesced = Counter.build()
+            .name(PREFIX + "coalesced_total")
+            .help("Status changes replaced by a newer one before they were written, by kind.")
+            .labelNames("kind")
+            .register();
+
+    private static final Counter writes = Counter.build()
+            .name(PREFIX + "writes_total")
+            .help("Status writes by kind and result (written, retried, dropped).")
+            .labelNames("kind", "result")
+            .register();
+
+    private static final Histogram latency = Histogram.build()
+            .name(PREFIX + "write_latency_seconds")
+            .help("Time from the status change to its successful write, by kind.")
+            .labelNames("kind")
+            .buckets(0.01, 0.05, 0.1, 0.5, 1, 5, 10, 30)
+            .register();
+
+    /**
+     * Sends one status patch to the API server.
+     */
+    interface Write {
+        void write(InfoClass patch);
+    }
+
+    private static final class Pending {
+        private final InfoClass patch;
+        private final long submittedNs;
+        private final int attempt;
+
+        private Pending(InfoClass patch, long submittedNs, int attempt) {
+            this.patch = patch;
+            this.submittedNs = submittedNs;
+            this.attempt = attempt;
+        }
+    }
+
+    private final String kind;
+    private final Write write;
+    // both guarded by this
+    private final Map<String, Pending> pending = new HashMap<>();
+    private final Set<String> inFlight = new HashSet<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param client client used for the writes
+     * @param kind   kind of the custom resources, used for the metrics and logging
+     */
+    public StatusWriter(KubernetesClient client, String kind) {
+        this(kind, patch -> client.resources(InfoClass.class, InfoList.class)
+                .inNamespace(patch.getMetadata().getNamespace())
+                .withName(patch.getMetadata().getName())
+                .patchStatus(patch));
+    }
+
+    StatusWriter(String kind, Write write) {
+        this.kind = kind;
+        this.write = write;
+    }
+
+    /**
+     * Schedules the write of the status and returns immediately.
+     *
+     * @param patch custom resource with the name, namespace and status set, the rest of the fields should be empty
+     */
+    public void submit(InfoClass patch) {
+        if (closed) {
+            return;
+        }
+        String key = ResourceCache.key(patch.getMetadata().getNamespace(), patch.getMetadata().getName());
+        updates.labels(kind).inc();
+        boolean start;
+        synchronized (this) {
+            Pending replaced = pending.put(key, new Pending(patch, System.nanoTime(), 1));
+            if (replaced != null) {
+                coalesced.labels(kind).inc();
+                if (patch.getStatus().getObservedGeneration() == null) {
+                    // the newer state doesn't know the generation, don't lose the one that has been reconciled
+                    patch.getStatus().setObservedGeneration(replaced.patch.getStatus().getObservedGeneration());
+                }
+            }
+            // the write in flight picks the new state up when it's done
+            start = inFlight.add(key);
+        }
+        if (start) {
+            OperatorExecutors.get().blocking().execute(() -> drain(key));
+        }
+    }
+
+    /**
+     * Writes the pending states of the custom resource one by one until there is none left or a write has to be
+     * retried later.
+     */
+    private void drain(String key) {
+        while (!closed) {
+            Pending next;
+            synchronized (this) {
+                next = pending.remove(key);
+                if (next == null) {
+                    inFlight.remove(key);
+                    return;
+                }
+            }
+            if (!writeOrRetry(key, next)) {
+                return;
+            }
+        }
+        synchronized (this) {
+            inFlight.remove(key);
+        }
+    }
+
+    /**
+     * @return false if the write was rescheduled, the key then stays in flight
+     */
+    private boolean writeOrRetry(String key, Pending update) {
+        try {
+            write.write(update.patch);
+            writes.labels(kind, "written").inc();
+            latency.labels(kind).observe((System.nanoTime() - update.submittedNs) / 1e9);
+            return true;
+        } catch (KubernetesClientException e) {
+            if (e.getCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+                // the custom resource has been deleted (or its CRD has no status subresource)
+                log.debug("unable to write the status of {} {}: {}", kind, key, e.getMessage());
+                writes.labels(kind, "dropped").inc();
+                return true;
+            }
+            if (!isRetryable(e.getCode()) || update.attempt >= MAX_ATTEMPTS) {
+                log.warn("failed to update the status of {} {}: {}", kind, key, e.getMessage());
+                writes.labels(kind, "dropped").inc();
+                return true;
+            }
+        } catch (RuntimeException e) {
+            if (update.attempt >= MAX_ATTEMPTS) {
+                log.warn("failed to update the status of {} {}: {}", kind, key, e.getMessage());
+                writes.labels(kind, "dropped").inc();
+                return true;
+            }
+        }
+        writes.labels(kind, "retried").inc();
+        synchronized (this) {
+            // a newer state wins, but it's written with the backoff of this one
+            pending.putIfAbsent(key, new Pending(update.patch, update.submittedNs, update.attempt + 1));
+        }
+        long delayMs = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << (update.attempt - 1));
+        OperatorExecutors.get().scheduler().schedule(
+                () -> OperatorExecutors.get().blocking().execute(() -> drain(key)), delayMs, TimeUnit.MILLISECONDS);
+        return false;
+    }
+
+    private static boolean isRetryable(int code) {
+        // 0 stands for an I/O error
+        return code == 0 || code == HttpURLConnection.HTTP_CONFLICT || code == 429 || code >= 500;
+    }
+
+    /**
+     * @return number of custom resources whose status waits for a write
+     */
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Drops the pending states, the writes in flight are finished.
+     */
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            pending.clear();
+        }
+    }
+}
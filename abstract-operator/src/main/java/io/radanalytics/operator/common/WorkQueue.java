@@ -0,0 +1,391 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.client.Watcher;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Gauge;
+import io.prometheus.client.Histogram;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Queue of pending events keyed by <code>namespace/name</code>. For each key only the latest desired state is kept,
+ * so a burst of events for the same object results in a single handler call:
+ * <ul>
+ *     <li>ADDED followed by DELETED becomes DELETED, the resources may have been created by a full reconciliation</li>
+ *     <li>repeated MODIFIED events collapse into the last one</li>
+ *     <li>ADDED followed by MODIFIED stays ADDED, but with the latest entity</li>
+ *     <li>DELETED followed by ADDED becomes MODIFIED, unless the new object has another uid, then it's ADDED that
+ *     carries the deletion to be handled first, see {@link Event#getReplaced()}</li>
+ * </ul>
+ *
+ * The producers (watch callbacks) never block, the consumers call {@link #take()} and then {@link #done(Event)}
+ * once the event has been handled. Events that failed can be put back with {@link #requeue(Event)}, they are re-added
+ * after a delay given by the {@link RateLimiter}, unless a newer event for the same key has arrived in the meantime.
+ *
+ * @param <T> entity info class
+ */
+public class WorkQueue<T> {
+
+    private static final String PREFIX = "operator_workqueue_";
+
+    private static final Gauge depth = Gauge.build()
+            .name(PREFIX + "depth")
+            .help("Number of keys waiting in the work queue.")
+            .labelNames("queue")
+            .register();
+
+    private static final Histogram dwell = Histogram.build()
+            .name(PREFIX + "dwell_seconds")
+            .help("How long an event waited in the work queue before it was handed over to the handler.")
+            .labelNames("queue")
+            .buckets(0.001, 0.01, 0.1, 0.5, 1, 5, 10, 30, 60)
+            .register();
+
+    private static final Counter coalesced = Counter.build()
+            .name(PREFIX + "coalesced_total")
+            .help("How many events were merged with an event that was already waiting for the same key.")
+            .labelNames("queue")
+            .register();
+
+    private static final Counter retries = Counter.build()
+            .name(PREFIX + "retries_total")
+            .help("How many failed events were scheduled for another attempt.")
+            .labelNames("queue")
+            .register();
+
+    private static final Histogram retryBackoff = Histogram.build()
+            .name(PREFIX + "retry_backoff_seconds")
+            .help("Delay before a failed event is retried.")
+            .labelNames("queue")
+            .buckets(0.5, 1, 2, 5, 10, 30, 60, 120, 300)
+            .register();
+
+    private static final Histogram retryAttempts = Histogram.build()
+            .name(PREFIX + "attempts")
+            .help("How many attempts it took to handle an event successfully.")
+            .labelNames("queue")
+            .buckets(1, 2, 3, 5, 8, 13, 21)
+            .register();
+
+    private static final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Single unit of work for the handlers.
+     *
+     * @param <T> entity info class
+     */
+    public static class Event<T> {
+        private final Watcher.Action action;
+        private final T entity;
+        private final String namespace;
+        private final String key;
+        private final Long generation;
+        private final String resourceVersion;
+        private final String uid;
+        private final Event<T> replaced;
+        private final long enqueuedNanos;
+        private final long seq;
+
+        public Event(Watcher.Action action, T entity, String namespace, String key) {
+            this(action, entity, namespace, key, null, null);
+        }
+
+        public Event(Watcher.Action action, T entity, String namespace, String key, Long generation,
+                     String resourceVersion) {
+            this(action, entity, namespace, key, generation, resourceVersion, null);
+        }
+
+        public Event(Watcher.Action action, T entity, String namespace, String key, Long generation,
+                     String resourceVersion, String uid) {
+            this(action, entity, namespace, key, generation, resourceVersion, uid, null, System.nanoTime(),
+                    sequence.incrementAndGet());
+        }
+
+        private Event(Watcher.Action action, T entity, String namespace, String key, Long generation,
+                      String resourceVersion, String uid, Event<T> replaced, long enqueuedNanos, long seq) {
+            this.action = action;
+            this.entity = entity;
+            this.namespace = namespace;
+            this.key = key;
+            this.generation = generation;
+            this.resourceVersion = resourceVersion;
+            this.uid = uid;
+            this.replaced = replaced;
+            this.enqueuedNanos = enqueuedNanos;
+            this.seq = seq;
+        }
+
+        public Watcher.Action getAction() {
+            return action;
+        }
+
+        public T getEntity() {
+            return entity;
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return metadata.generation of the resource the event was created from, or null if not known
+         */
+        public Long getGeneration() {
+            return generation;
+        }
+
+        /**
+         * @return metadata.resourceVersion of the resource the event was created from, or null if not known
+         */
+        public String getResourceVersion() {
+            return resourceVersion;
+        }
+
+        /**
+         * @return metadata.uid of the resource the event was created from, or null if not known
+         */
+        public String getUid() {
+            return uid;
+        }
+
+        /**
+         * @return DELETED event of an object with the same name but another uid that has to be handled before this
+         * event, or null
+         */
+        public Event<T> getReplaced() {
+            return replaced;
+        }
+
+        Event<T> withAction(Watcher.Action newAction, Event<T> newer) {
+            // keep the original timestamp so that the dwell time covers the whole burst, a pending deletion of the
+            // replaced object is still needed unless this one is deleted too
+            return new Event<>(newAction, newer.entity, newer.namespace, key, newer.generation,
+                    newer.resourceVersion, newer.uid, newAction == Watcher.Action.DELETED ? null : replaced,
+                    enqueuedNanos, newer.seq);
+        }
+
+        /**
+         * @param newer ADDED (or MODIFIED) event of a new object with the same name
+         * @return ADDED event that handles this deletion first
+         */
+        Event<T> replacedBy(Event<T> newer) {
+            return new Event<>(Watcher.Action.ADDED, newer.entity, newer.namespace, key, newer.generation,
+                    newer.resourceVersion, newer.uid, this, enqueuedNanos, newer.seq);
+        }
+
+        Event<T> retried() {
+            return new Event<>(action, entity, namespace, key, generation, resourceVersion, uid, replaced,
+                    System.nanoTime(), seq);
+        }
+
+        @Override
+        public String toString() {
+            return action + " " + key;
+        }
+    }
+
+    private final String name;
+    private final LinkedHashMap<String, Event<T>> pending = new LinkedHashMap<>();
+    private final Set<String> processing = new HashSet<>();
+    // sequence number of the latest event that was added for the key, used for discarding outdated retries
+    private final Map<String, Long> latest = new HashMap<>();
+    private final RateLimiter rateLimiter;
+    private boolean shutdown = false;
+    private boolean held = false;
+
+    public WorkQueue(String name) {
+        this(name, new RateLimiter());
+    }
+
+    public WorkQueue(String name, RateLimiter rateLimiter) {
+        this.name = name;
+        this.rateLimiter = rateLimiter;
+        depth.labels(name).set(0);
+    }
+
+    /**
+     * Adds the event to the queue or merges it with the event that is already waiting for the same key.
+     * This method never blocks.
+     *
+     * @param event incoming event
+     */
+    public synchronized void add(Event<T> event) {
+        if (shutdown) {
+            return;
+        }
+        latest.put(event.getKey(), event.seq);
+        Event<T> existing = pending.get(event.getKey());
+        if (existing == null) {
+            pending.put(event.getKey(), event);
+        } else {
+            coalesced.labels(name).inc();
+            pending.put(event.getKey(), merge(existing, event));
+        }
+        depth.labels(name).set(pending.size());
+        notifyAll();
+    }
+
+    private Event<T> merge(Event<T> existing, Event<T> incoming) {
+        switch (incoming.getAction()) {
+            case DELETED:
+                // even if the ADDED hasn't been handled, a full reconciliation may have already created the
+                // resources from the cache, so the deletion is never dropped (it's a no-op otherwise)
+                return existing.withAction(Watcher.Action.DELETED, incoming);
+            case ADDED:
+            case MODIFIED:
+                if (existing.getAction() == Watcher.Action.DELETED) {
+                    if (existing.uid != null && incoming.uid != null && !existing.uid.equals(incoming.uid)) {
+                        // a new object with the same name, the dependents of the old one are garbage collected, so
+                        // the deletion is handled first and then the new object is created
+                        return existing.replacedBy(incoming);
+                    }
+                    // deleted and created again, the resources still exist so it's a modification
+                    return existing.withAction(Watcher.Action.MODIFIED, incoming);
+                }
+                return existing.withAction(existing.getAction(), incoming);
+            default:
+                return existing;
+        }
+    }
+
+    /**
+     * Waits for the next key that is not being processed and removes its event from the queue.
+     *
+     * @return next event or null if the queue has been shut down
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized Event<T> take() throws InterruptedException {
+        while (true) {
+            if (shutdown) {
+                return null;
+            }
+            if (held) {
+                wait();
+                continue;
+            }
+            Iterator<Map.Entry<String, Event<T>>> it = pending.entrySet().iterator();
+            while (it.hasNext()) {
+                Event<T> event = it.next().getValue();
+                if (!processing.contains(event.getKey())) {
+                    it.remove();
+                    processing.add(event.getKey());
+                    depth.labels(name).set(pending.size());
+                    dwell.labels(name).observe((System.nanoTime() - event.enqueuedNanos) / (double) TimeUnit.SECONDS.toNanos(1));
+                    return event;
+                }
+            }
+            wait();
+        }
+    }
+
+    /**
+     * Marks the event as handled, so that the next event for the same key can be taken.
+     *
+     * @param event event returned by {@link #take()}
+     */
+    public synchronized void done(Event<T> event) {
+        processing.remove(event.getKey());
+        notifyAll();
+    }
+
+    /**
+     * Stops handing out the events, they are still accepted and coalesced until {@link #release(Predicate)}
+     * is called.
+     */
+    public synchronized void hold() {
+        held = true;
+    }
+
+    /**
+     * Drops the waiting events that match the predicate and resumes handing out the rest.
+     *
+     * @param obsolete predicate for the events that don't have to be handled anymore
+     * @return how many events were dropped
+     */
+    public synchronized int release(Predicate<Event<T>> obsolete) {
+        int dropped = 0;
+        Iterator<Map.Entry<String, Event<T>>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            if (obsolete.test(it.next().getValue())) {
+                it.remove();
+                dropped++;
+            }
+        }
+        held = false;
+        depth.labels(name).set(pending.size());
+        notifyAll();
+        return dropped;
+    }
+
+    public synchronized boolean isHeld() {
+        return held;
+    }
+
+    /**
+     * Schedules another attempt for an event that has failed. The delay grows exponentially with each failure of
+     * the key and is also limited by the global token bucket. If a newer event for the same key arrives before
+     * the delay expires, the retry is dropped, because the newer event carries the up-to-date state.
+     *
+     * @param event event returned by {@link #take()} whose handling has failed
+     * @return delay in milliseconds after which the event is re-added
+     */
+    public long requeue(Event<T> event) {
+        long delayMs = rateLimiter.when(event.getKey());
+        retries.labels(name).inc();
+        retryBackoff.labels(name).observe(delayMs / 1000.0);
+        OperatorExecutors.get().scheduler().schedule(() -> retry(event), delayMs, TimeUnit.MILLISECONDS);
+        return delayMs;
+    }
+
+    private synchronized void retry(Event<T> event) {
+        if (shutdown || !Objects.equals(latest.get(event.getKey()), event.seq)) {
+            // superseded by a newer event
+            return;
+        }
+        if (!pending.containsKey(event.getKey())) {
+            pending.put(event.getKey(), event.retried());
+            depth.labels(name).set(pending.size());
+            notifyAll();
+        }
+    }
+
+    /**
+     * Resets the backoff of the key after its event has been handled successfully.
+     *
+     * @param event event returned by {@link #take()}
+     */
+    public synchronized void forget(Event<T> event) {
+        retryAttempts.labels(name).observe(rateLimiter.attempts(event.getKey()) + 1);
+        rateLimiter.forget(event.getKey());
+        if (!pending.containsKey(event.getKey()) && Objects.equals(latest.get(event.getKey()), event.seq)) {
+            latest.remove(event.getKey());
+        }
+    }
+
+    /**
+     * @param event event returned by {@link #take()}
+     * @return how many times the handling of the key has failed so far
+     */
+    public int attempts(Event<T> event) {
+        return rateLimiter.attempts(event.getKey());
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public synchronized void shutdown() {
+        shutdown = true;
+        pending.clear();
+        latest.clear();
+        depth.labels(name).set(0);
+        notifyAll();
+    }
+}
@@ -1,4 +1,5 @@
 package io.radanalytics.operator.common.crd;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.fabric8.kubernetes.api.model.KubernetesResource;
 
 
@@ -11,6 +12,9 @@ public class InfoStatus implements KubernetesResource {
 
     private String state;
     private String lastTransitionTime;
+    // not sent when unknown, the status is written as a merge patch and null would remove the recorded value
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long observedGeneration;
 
     private static String toDateString(Date date) {
         DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'kk:mm:ss'Z'");
@@ -30,6 +34,11 @@ public class InfoStatus implements KubernetesResource {
         this.lastTransitionTime = toDateString(dt);
     }
 
+    public InfoStatus(String state, Date dt, Long observedGeneration) {
+        this(state, dt);
+        this.observedGeneration = observedGeneration;
+    }
+
     public void setState(String s) {
         this.state = s;
     }
@@ -46,11 +55,23 @@ public class InfoStatus implements KubernetesResource {
         return this.lastTransitionTime;
     }
 
+    /**
+     * @return metadata.generation of the custom resource that was reconciled when this status was written
+     */
+    public Long getObservedGeneration() {
+        return this.observedGeneration;
+    }
+
+    public void setObservedGeneration(Long observedGeneration) {
+        this.observedGeneration = observedGeneration;
+    }
+
     @Override
     public String toString() {
         return "InfoStatus{" +
                 " state=" + state +
                 " lastTransitionTime=" + lastTransitionTime +
+                " observedGeneration=" + observedGeneration +
                 "}";
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.radanalytics.operator.resource;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.hash.Hashing;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.utils.Serialization;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A helper for the {@code metadata.annotations} section that carries the fingerprint (hash) of the resource as it
+ * was rendered by the operator. If the fingerprint of the live object is the same as the fingerprint of the newly
+ * rendered one, the object doesn't have to be written again.
+ */
+public class FingerprintHelper {
+
+    public static final String SPEC_HASH_ANNOTATION = "spec-hash";
+
+    // stable output: the model classes have a fixed property order, the maps (labels, ..) are sorted
+    private static final ObjectMapper MAPPER = Serialization.jsonMapper().copy()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    /**
+     * @param prefix prefix of the operator's labels and annotations, e.g. {@code radanalytics.io/}
+     * @return name of the annotation with the fingerprint
+     */
+    public static String annotation(String prefix) {
+        return prefix + SPEC_HASH_ANNOTATION;
+    }
+
+    /**
+     * @param resource rendered resource without the fingerprint annotation
+     * @return hash of the whole resource
+     */
+    public static String fingerprint(HasMetadata resource) {
+        return fingerprint((Object) resource);
+    }
+
+    /**
+     * @param value any object that can be serialized to JSON, e.g. the spec of an entity
+     * @return hash of its JSON representation
+     */
+    public static String fingerprint(Object value) {
+        try {
+            return Hashing.sha256().hashBytes(MAPPER.writeValueAsBytes(value)).toString();
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Unable to serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Computes the fingerprints of the freshly rendered resources and stores them in the annotations.
+     *
+     * @param list   rendered resources
+     * @param prefix prefix of the operator's labels and annotations
+     * @return the same list
+     */
+    public static KubernetesResourceList<? extends HasMetadata> stamp(KubernetesResourceList<? extends HasMetadata> list,
+                                                                      String prefix) {
+        list.getItems().forEach(item -> stamp(item, prefix));
+        return list;
+    }
+
+    public static void stamp(HasMetadata resource, String prefix) {
+        String hash = fingerprint(resource);
+        Map<String, String> annotations = resource.getMetadata().getAnnotations() == null ? new HashMap<>() :
+                new HashMap<>(resource.getMetadata().getAnnotations());
+        annotations.put(annotation(prefix), hash);
+        resource.getMetadata().setAnnotations(annotations);
+    }
+
+    public static Optional<String> getFingerprint(HasMetadata resource, String prefix) {
+        return Optional.ofNullable(resource)
+                .map(r -> r.getMetadata())
+                .map(m -> m.getAnnotations())
+                .map(a -> a.get(annotation(prefix)));
+    }
+}
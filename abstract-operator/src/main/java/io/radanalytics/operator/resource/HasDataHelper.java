@@ -8,7 +8,6 @@ import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.radanalytics.operator.common.EntityInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.Constructor;
 import org.yaml.snakeyaml.error.YAMLException;
@@ -24,10 +23,17 @@ import org.yaml.snakeyaml.error.YAMLException;
 public class HasDataHelper {
     private static final Logger log = LoggerFactory.getLogger(HasDataHelper.class.getName());
 
+    // Yaml instances are not thread-safe, so one parser per class and thread is reused
+    private static final ClassValue<ThreadLocal<Yaml>> parsers = new ClassValue<ThreadLocal<Yaml>>() {
+        @Override
+        protected ThreadLocal<Yaml> computeValue(Class<?> type) {
+            return ThreadLocal.withInitial(() -> new Yaml(new Constructor(type)));
+        }
+    };
+
     public static <T extends EntityInfo> T parseYaml(Class<T> clazz, String yamlDoc, String name) {
 
-        LoaderOptions options = new LoaderOptions();
-        Yaml snake = new Yaml(new Constructor(clazz));
+        Yaml snake = parsers.get(clazz).get();
         T entity = null;
         try {
             entity = snake.load(yamlDoc);
@@ -71,6 +77,9 @@ public class HasDataHelper {
     public static <T extends EntityInfo> T parseCM(Class<T> clazz, ConfigMap cm) {
         String yaml = cm.getData().get("config");
         T entity = parseYaml(clazz, yaml, cm.getMetadata().getName());
+        if (entity != null && entity.getNamespace() == null) {
+            entity.setNamespace(cm.getMetadata().getNamespace());
+        }
         return entity;
     }
 }
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018
+ * License: Apache License 2.0 (see the file LICENSE or http://apache.org/licenses/LICENSE-2.0.html).
+ */
+package io.radanalytics.operator.resource;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.OwnerReference;
+import io.fabric8.kubernetes.api.model.OwnerReferenceBuilder;
+
+import java.util.Collections;
+import java.util.Optional;
+
+/**
+ * A helper for the {@code metadata.ownerReferences} section. The resources rendered for a custom resource point to
+ * it, so when the custom resource is deleted, the Kubernetes garbage collector deletes them in the background
+ * (together with the pods of the replication controllers) and the operator doesn't have to list and delete them by
+ * their labels.
+ */
+public class OwnerReferenceHelper {
+
+    /**
+     * @param apiVersion api version of the owner, e.g. {@code radanalytics.io/v1}
+     * @param kind       kind of the owner
+     * @param name       name of the owner
+     * @param uid        uid of the owner
+     * @return controller reference that blocks the deletion of the owner in the foreground until the resource is gone
+     */
+    public static OwnerReference controller(String apiVersion, String kind, String name, String uid) {
+        return new OwnerReferenceBuilder()
+                .withApiVersion(apiVersion)
+                .withKind(kind)
+                .withName(name)
+                .withUid(uid)
+                .withController(true)
+                .withBlockOwnerDeletion(true)
+                .build();
+    }
+
+    /**
+     * Sets the owner of all the resources in the list, it has to be called before they are stamped with their
+     * fingerprint (see {@link FingerprintHelper}), so that a recreated owner (with a new uid) is patched in.
+     *
+     * @param list  rendered resources
+     * @param owner owner reference, nothing is set if it's null
+     */
+    public static void setOwner(KubernetesResourceList<? extends HasMetadata> list, OwnerReference owner) {
+        if (owner == null) {
+            return;
+        }
+        list.getItems().forEach(resource ->
+                resource.getMetadata().setOwnerReferences(Collections.singletonList(owner)));
+    }
+
+    /**
+     * @param resource resource
+     * @return true if the resource has a controller, so it will be garbage collected together with it
+     */
+    public static boolean hasController(HasMetadata resource) {
+        return Optional.ofNullable(resource)
+                .map(HasMetadata::getMetadata)
+                .map(m -> m.getOwnerReferences())
+                .map(refs -> refs.stream().anyMatch(ref -> Boolean.TRUE.equals(ref.getController())))
+                .orElse(false);
+    }
+}
@@ -0,0 +1,43 @@
+package io.radanalytics.operator.common;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class ChangeLogTest {
+
+    @Test
+    public void testDrainByNamespace() {
+        ChangeLog changes = new ChangeLog("test");
+        changes.mark("a", "one");
+        changes.mark("a", "one");
+        changes.mark("a", "two");
+        changes.mark("ab", "three");
+        changes.mark("b", null);
+
+        assertEquals(3, changes.size());
+        Set<String> drained = changes.drain("a");
+        assertEquals(2, drained.size());
+        assertTrue(drained.contains("a/one"));
+        assertTrue(drained.contains("a/two"));
+        assertEquals(1, changes.size());
+
+        assertEquals(Collections.singleton("ab/three"), changes.drain("*"));
+        assertEquals(0, changes.size());
+    }
+
+    @Test
+    public void testRestore() {
+        ChangeLog changes = new ChangeLog("test");
+        changes.mark("ns", "cluster");
+        Set<String> drained = changes.drain("ns");
+        assertTrue(changes.drain("ns").isEmpty());
+        changes.restore(drained);
+        assertEquals(drained, changes.drain("ns"));
+        assertEquals("ns", ChangeLog.namespace("ns/cluster"));
+        assertEquals("cluster", ChangeLog.name("ns/cluster"));
+    }
+}
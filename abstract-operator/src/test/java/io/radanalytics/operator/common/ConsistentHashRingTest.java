@@ -0,0 +1,53 @@
+package io.radanalytics.operator.common;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 10_000;
+
+    @Test
+    public void testKeysAreSpreadEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"));
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.owner("ns-" + i + "/cluster"), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        counts.forEach((member, count) ->
+                assertTrue(member + " owns " + count + " keys", count > KEYS / 4 / 2 && count < KEYS / 4 * 2));
+    }
+
+    @Test
+    public void testOnlyKeysOfTheNewMemberMove() {
+        ConsistentHashRing before = new ConsistentHashRing(Arrays.asList("a", "b", "c"));
+        ConsistentHashRing after = new ConsistentHashRing(Arrays.asList("a", "b", "c", "d"));
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "ns-" + i;
+            String oldOwner = before.owner(key);
+            String newOwner = after.owner(key);
+            if (!oldOwner.equals(newOwner)) {
+                assertEquals("keys can move only to the new member", "d", newOwner);
+                moved++;
+            }
+        }
+        assertTrue("roughly a quarter of the keys should move, moved " + moved, moved > KEYS / 8 && moved < KEYS / 2);
+    }
+
+    @Test
+    public void testSameOwnerOnEveryReplica() {
+        ConsistentHashRing one = new ConsistentHashRing(Arrays.asList("b", "a", "c"));
+        ConsistentHashRing other = new ConsistentHashRing(Arrays.asList("c", "b", "a"));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(one.owner("key-" + i), other.owner("key-" + i));
+        }
+        assertNull(new ConsistentHashRing(Arrays.<String>asList()).owner("key"));
+    }
+}
@@ -0,0 +1,51 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.client.server.mock.KubernetesServer;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LeaderElectionTest {
+
+    @Rule
+    public KubernetesServer server = new KubernetesServer(true, true);
+
+    @Test
+    public void testStandbyTakesOverReleasedLease() throws InterruptedException {
+        Duration leaseDuration = Duration.ofSeconds(2);
+        LeaderElection first = new LeaderElection(server.getClient(), "test", "operator-leader", "first", leaseDuration);
+        LeaderElection second = new LeaderElection(server.getClient(), "test", "operator-leader", "second", leaseDuration);
+        CountDownLatch firstLeads = new CountDownLatch(1);
+        CountDownLatch secondLeads = new CountDownLatch(1);
+        try {
+            first.start(firstLeads::countDown, () -> { });
+            assertTrue("the first candidate should acquire the free lease", firstLeads.await(5, TimeUnit.SECONDS));
+
+            second.start(secondLeads::countDown, () -> { });
+            assertFalse("the lease is held and renewed by the first candidate", secondLeads.await(3, TimeUnit.SECONDS));
+            assertTrue(first.isLeader());
+            assertFalse(second.isLeader());
+
+            double failovers = failoverCount();
+            first.stop();
+            assertFalse(first.isLeader());
+            assertTrue("the standby should take over the released lease", secondLeads.await(5, TimeUnit.SECONDS));
+            assertTrue(second.isLeader());
+            assertEquals(failovers + 1, failoverCount(), 0.0);
+        } finally {
+            first.stop();
+            second.stop();
+        }
+    }
+
+    private static double failoverCount() {
+        Double value = CollectorRegistry.defaultRegistry.getSampleValue("operator_leader_failover_seconds_count");
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,58 @@
+package io.radanalytics.operator.common;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ReconciliationSchedulerTest {
+
+    @Test
+    public void testConcurrentSweepsAreCapped() throws InterruptedException {
+        ReconciliationScheduler scheduler = new ReconciliationScheduler(1);
+        final AtomicInteger parallel = new AtomicInteger();
+        final AtomicInteger maxParallel = new AtomicInteger();
+        final CountDownLatch finished = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            scheduler.register("op-" + i, 3600, () -> true, () -> {
+                maxParallel.accumulateAndGet(parallel.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                parallel.decrementAndGet();
+                finished.countDown();
+            });
+        }
+        assertTrue("the first sweeps should run soon after the start", finished.await(10, TimeUnit.SECONDS));
+        assertEquals(1, maxParallel.get());
+    }
+
+    @Test
+    public void testFirstSweepWaitsForSyncAndImmediateRequest() throws InterruptedException {
+        ReconciliationScheduler scheduler = new ReconciliationScheduler(2);
+        final AtomicBoolean synced = new AtomicBoolean(false);
+        final AtomicInteger sweeps = new AtomicInteger();
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch second = new CountDownLatch(2);
+        ReconciliationScheduler.Registration registration = scheduler.register("op", 3600, synced::get, () -> {
+            sweeps.incrementAndGet();
+            first.countDown();
+            second.countDown();
+        });
+
+        assertFalse("nothing should run until the caches are synced", first.await(3500, TimeUnit.MILLISECONDS));
+        synced.set(true);
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+
+        registration.requestNow();
+        assertTrue("immediate sweep should not wait for the interval", second.await(5, TimeUnit.SECONDS));
+        assertEquals(2, sweeps.get());
+        registration.cancel();
+    }
+}
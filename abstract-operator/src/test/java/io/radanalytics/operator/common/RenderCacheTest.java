@@ -0,0 +1,79 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class RenderCacheTest {
+
+    public static class TestInfo extends EntityInfo {
+        private int workers;
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+    }
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    private final Function<TestInfo, KubernetesResourceList<? extends HasMetadata>> renderer = info -> {
+        renders.incrementAndGet();
+        return new KubernetesListBuilder().build();
+    };
+
+    @Test
+    public void testUnchangedInputIsRenderedOnce() {
+        RenderCache<TestInfo> cache = new RenderCache<>("test");
+        KubernetesResourceList<? extends HasMetadata> first = cache.get(info("my-cluster", 2), "image:1", renderer);
+        KubernetesResourceList<? extends HasMetadata> second = cache.get(info("my-cluster", 2), "image:1", renderer);
+
+        assertSame(first, second);
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    public void testChangedSpecOrEnvironmentIsRenderedAgain() {
+        RenderCache<TestInfo> cache = new RenderCache<>("test");
+        cache.get(info("my-cluster", 2), "image:1", renderer);
+        cache.get(info("my-cluster", 3), "image:1", renderer);
+        cache.get(info("my-cluster", 2), "image:2", renderer);
+
+        assertEquals(3, renders.get());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        RenderCache<TestInfo> cache = new RenderCache<>("test", 2);
+        cache.get(info("a", 1), null, renderer);
+        cache.get(info("b", 1), null, renderer);
+        // a is used again, so b is the eldest one
+        cache.get(info("a", 1), null, renderer);
+        cache.get(info("c", 1), null, renderer);
+        assertEquals(2, cache.size());
+        assertEquals(3, renders.get());
+
+        cache.get(info("a", 1), null, renderer);
+        assertEquals(3, renders.get());
+        cache.get(info("b", 1), null, renderer);
+        assertEquals(4, renders.get());
+    }
+
+    private static TestInfo info(String name, int workers) {
+        TestInfo info = new TestInfo();
+        info.setName(name);
+        info.setNamespace("test");
+        info.setWorkers(workers);
+        return info;
+    }
+}
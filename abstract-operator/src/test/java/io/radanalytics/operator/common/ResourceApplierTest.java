@@ -0,0 +1,76 @@
+package io.radanalytics.operator.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResourceApplierTest {
+
+    private static final String ANNOTATION = "radanalytics.io/" + ResourceApplier.LAST_APPLIED_ANNOTATION;
+
+    @Test
+    public void testOnlyRenderedFieldsArePatched() {
+        Service live = new ServiceBuilder((Service) ResourceApplier.withLastApplied(service(7077), ANNOTATION))
+                .editMetadata().withResourceVersion("42").withUid("abc").endMetadata()
+                .editSpec().withClusterIP("10.0.0.1").editFirstPort().withProtocol("TCP").endPort().endSpec()
+                .build();
+
+        assertEquals("defaulted and server-side fields must be kept", 0,
+                diff(live, service(7077)).size());
+
+        JsonNode patch = diff(live, service(8080));
+        assertEquals(patch.toString(), 2, patch.size());
+        assertTrue(patch.toString(), hasOp(patch, "replace", "/spec/ports/0/port"));
+        assertTrue(patch.toString(), hasOp(patch, "replace", "/metadata/annotations/radanalytics.io~1last-applied"));
+    }
+
+    @Test
+    public void testFieldsThatAreNotRenderedAnymoreAreRemoved() {
+        Service rendered = new ServiceBuilder(service(7077))
+                .editMetadata().addToLabels("team", "data").endMetadata()
+                .editSpec().withSessionAffinity("ClientIP").endSpec()
+                .build();
+        Service live = new ServiceBuilder((Service) ResourceApplier.withLastApplied(rendered, ANNOTATION))
+                .editMetadata().addToLabels("owner", "someone-else").endMetadata()
+                .build();
+
+        JsonNode patch = diff(live, service(7077));
+        assertEquals(patch.toString(), 3, patch.size());
+        assertTrue(patch.toString(), hasOp(patch, "remove", "/metadata/labels/team"));
+        assertTrue(patch.toString(), hasOp(patch, "remove", "/spec/sessionAffinity"));
+        assertFalse("labels not set by the operator must be kept", hasOp(patch, "remove", "/metadata/labels/owner"));
+    }
+
+    @Test
+    public void testNothingIsRemovedWithoutTheLastAppliedAnnotation() {
+        Service live = new ServiceBuilder(service(7077))
+                .editMetadata().addToLabels("team", "data").endMetadata()
+                .build();
+
+        JsonNode patch = diff(live, service(7077));
+        assertEquals(patch.toString(), 1, patch.size());
+        assertEquals("add", patch.get(0).get("op").asText());
+        assertEquals("/metadata/annotations", patch.get(0).get("path").asText());
+    }
+
+    private static JsonNode diff(Service live, Service rendered) {
+        return ResourceApplier.diff(live, ResourceApplier.withLastApplied(rendered, ANNOTATION), ANNOTATION);
+    }
+
+    private static boolean hasOp(JsonNode patch, String op, String path) {
+        for (JsonNode operation : patch) {
+            if (op.equals(operation.get("op").asText()) && path.equals(operation.get("path").asText())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Service service(int port) {
+        return new ServiceBuilder().withNewMetadata().withName("my-cluster").addToLabels("app", "spark").endMetadata()
+                .withNewSpec().addNewPort().withPort(port).endPort().endSpec().build();
+    }
+}
@@ -0,0 +1,105 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ConfigMapList;
+import io.fabric8.kubernetes.api.model.ConfigMapListBuilder;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.ListOptions;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ResourceInformerTest {
+
+    private static class FakeListerWatcher implements ResourceInformer.ListerWatcher<ConfigMap> {
+        private volatile ConfigMapList list;
+        private volatile Watcher<ConfigMap> watcher;
+
+        @Override
+        public KubernetesResourceList<ConfigMap> list() {
+            return list;
+        }
+
+        @Override
+        public Watch watch(ListOptions options, Watcher<ConfigMap> watcher) {
+            this.watcher = watcher;
+            return () -> { };
+        }
+    }
+
+    private final FakeListerWatcher api = new FakeListerWatcher();
+    private final List<String> events = new ArrayList<>();
+
+    @Test
+    public void testEventOlderThanTheListIsSkipped() throws Exception {
+        api.list = list("10", cm("a", "9"));
+        ResourceInformer<ConfigMap> informer = start();
+
+        // delivered late by a watch that was started before the list
+        api.watcher.eventReceived(Watcher.Action.ADDED, cm("b", "8"));
+        api.watcher.eventReceived(Watcher.Action.MODIFIED, cm("a", "7"));
+
+        assertNull(informer.getCache().get("ns", "b"));
+        assertEquals("9", informer.getCache().get("ns", "a").getMetadata().getResourceVersion());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testEventOlderThanTheCachedObjectIsSkipped() throws Exception {
+        api.list = list("10", cm("a", "9"));
+        ResourceInformer<ConfigMap> informer = start();
+
+        api.watcher.eventReceived(Watcher.Action.MODIFIED, cm("a", "12"));
+        api.watcher.eventReceived(Watcher.Action.MODIFIED, cm("a", "11"));
+
+        assertEquals("12", informer.getCache().get("ns", "a").getMetadata().getResourceVersion());
+        assertEquals(Arrays.asList("MODIFIED a"), events);
+    }
+
+    @Test
+    public void testNewerEventsAreApplied() throws Exception {
+        api.list = list("10", cm("a", "9"));
+        ResourceInformer<ConfigMap> informer = start();
+
+        api.watcher.eventReceived(Watcher.Action.ADDED, cm("b", "11"));
+        api.watcher.eventReceived(Watcher.Action.DELETED, cm("a", "12"));
+
+        assertNotNull(informer.getCache().get("ns", "b"));
+        assertNull(informer.getCache().get("ns", "a"));
+        assertEquals(Arrays.asList("ADDED b", "DELETED a"), events);
+    }
+
+    @Test
+    public void testResourceVersionsAreComparedAsNumbers() {
+        assertTrue(ResourceInformer.isNotNewer("9", "10"));
+        assertTrue(ResourceInformer.isNotNewer("10", "10"));
+        assertFalse(ResourceInformer.isNotNewer("11", "10"));
+        assertFalse(ResourceInformer.isNotNewer("abc", "10"));
+        assertFalse(ResourceInformer.isNotNewer("9", null));
+    }
+
+    private ResourceInformer<ConfigMap> start() throws Exception {
+        ResourceInformer<ConfigMap> informer = new ResourceInformer<>("ConfigMap", "ns", api, 0);
+        informer.addListener((action, cm) -> events.add(action + " " + cm.getMetadata().getName()));
+        informer.start().get(5, TimeUnit.SECONDS);
+        return informer;
+    }
+
+    private static ConfigMapList list(String resourceVersion, ConfigMap... items) {
+        return new ConfigMapListBuilder().withNewMetadata().withResourceVersion(resourceVersion).endMetadata()
+                .withItems(items).build();
+    }
+
+    private static ConfigMap cm(String name, String resourceVersion) {
+        return new ConfigMapBuilder().withNewMetadata().withName(name).withNamespace("ns")
+                .withResourceVersion(resourceVersion).endMetadata().build();
+    }
+}
@@ -0,0 +1,120 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.radanalytics.operator.common.crd.InfoClass;
+import io.radanalytics.operator.common.crd.InfoStatus;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class StatusWriterTest {
+
+    @Test
+    public void testStatesAreCoalesced() throws InterruptedException {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<String> written = new CopyOnWriteArrayList<>();
+        StatusWriter writer = new StatusWriter("test", patch -> {
+            firstWriteStarted.countDown();
+            await(release);
+            written.add(patch.getStatus().getState());
+            done.countDown();
+        });
+
+        writer.submit(patch("my-cluster", "ready"));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+        // the first write is in flight, these two are merged into one
+        writer.submit(patch("my-cluster", "scaled"));
+        writer.submit(patch("my-cluster", "deleted"));
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(2, written.size());
+        assertEquals("ready", written.get(0));
+        assertEquals("deleted", written.get(1));
+        assertEquals(0, writer.size());
+    }
+
+    @Test
+    public void testReconciledGenerationIsKeptWhenCoalesced() throws InterruptedException {
+        CountDownLatch firstWriteStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        List<Long> generations = new CopyOnWriteArrayList<>();
+        StatusWriter writer = new StatusWriter("test", patch -> {
+            firstWriteStarted.countDown();
+            await(release);
+            generations.add(patch.getStatus().getObservedGeneration());
+            done.countDown();
+        });
+
+        writer.submit(patch("my-cluster", "ready", 1L));
+        assertTrue(firstWriteStarted.await(5, TimeUnit.SECONDS));
+        writer.submit(patch("my-cluster", "scaled", 2L));
+        // not written from a handler, the generation isn't known
+        writer.submit(patch("my-cluster", "ready", null));
+        release.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1L, 2L), generations);
+    }
+
+    @Test
+    public void testConflictIsRetried() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch written = new CountDownLatch(1);
+        StatusWriter writer = new StatusWriter("test", patch -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new KubernetesClientException("conflict", 409, null);
+            }
+            written.countDown();
+        });
+
+        writer.submit(patch("my-cluster", "ready"));
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void testDeletedResourceIsNotRetried() throws InterruptedException {
+        AtomicInteger attempts = new AtomicInteger();
+        StatusWriter writer = new StatusWriter("test", patch -> {
+            attempts.incrementAndGet();
+            throw new KubernetesClientException("not found", 404, null);
+        });
+
+        writer.submit(patch("my-cluster", "deleted"));
+        Thread.sleep(StatusWriter.INITIAL_BACKOFF_MS * 3);
+        assertEquals(1, attempts.get());
+    }
+
+    private static InfoClass patch(String name, String state) {
+        return patch(name, state, 1L);
+    }
+
+    private static InfoClass patch(String name, String state, Long generation) {
+        InfoClass patch = new InfoClass();
+        patch.setMetadata(new ObjectMetaBuilder().withName(name).withNamespace("test").build());
+        patch.setStatus(new InfoStatus(state, new Date(), generation));
+        return patch;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package io.radanalytics.operator.common;
+
+import io.fabric8.kubernetes.client.Watcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class WorkQueueTest {
+
+    private WorkQueue<String> queue;
+    private final List<Thread> workers = new ArrayList<>();
+
+    @Before
+    public void prepare() {
+        queue = new WorkQueue<>("test-" + System.nanoTime());
+    }
+
+    @After
+    public void cleanup() {
+        queue.shutdown();
+        workers.forEach(Thread::interrupt);
+    }
+
+    @Test
+    public void testCoalescing() throws InterruptedException {
+        queue.add(event(Watcher.Action.MODIFIED, "a", "v1"));
+        queue.add(event(Watcher.Action.MODIFIED, "a", "v2"));
+        queue.add(event(Watcher.Action.ADDED, "b", "v1"));
+        queue.add(event(Watcher.Action.MODIFIED, "b", "v2"));
+        queue.add(event(Watcher.Action.ADDED, "c", "v1"));
+        queue.add(event(Watcher.Action.DELETED, "c", "v1"));
+        queue.add(event(Watcher.Action.DELETED, "d", "v1"));
+        queue.add(event(Watcher.Action.ADDED, "d", "v2"));
+        assertEquals(4, queue.size());
+
+        WorkQueue.Event<String> a = queue.take();
+        assertEquals(Watcher.Action.MODIFIED, a.getAction());
+        assertEquals("v2", a.getEntity());
+
+        WorkQueue.Event<String> b = queue.take();
+        assertEquals(Watcher.Action.ADDED, b.getAction());
+        assertEquals("v2", b.getEntity());
+
+        // created and deleted before it was handled, but the deletion is kept
+        WorkQueue.Event<String> c = queue.take();
+        assertEquals(Watcher.Action.DELETED, c.getAction());
+
+        WorkQueue.Event<String> d = queue.take();
+        assertEquals("ns/d", d.getKey());
+        assertEquals(Watcher.Action.MODIFIED, d.getAction());
+        assertEquals("v2", d.getEntity());
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testRecreatedObjectIsDeletedAndAdded() throws InterruptedException {
+        queue.add(new WorkQueue.Event<>(Watcher.Action.DELETED, "v1", "ns", "ns/a", 1L, "10", "uid-1"));
+        queue.add(new WorkQueue.Event<>(Watcher.Action.ADDED, "v2", "ns", "ns/a", 1L, "12", "uid-2"));
+        queue.add(new WorkQueue.Event<>(Watcher.Action.MODIFIED, "v3", "ns", "ns/a", 2L, "13", "uid-2"));
+        queue.add(new WorkQueue.Event<>(Watcher.Action.DELETED, "v1", "ns", "ns/b", 1L, "10", "uid-3"));
+        queue.add(new WorkQueue.Event<>(Watcher.Action.ADDED, "v2", "ns", "ns/b", 1L, "12", "uid-3"));
+
+        WorkQueue.Event<String> a = queue.take();
+        assertEquals(Watcher.Action.ADDED, a.getAction());
+        assertEquals("v3", a.getEntity());
+        assertNotNull("the deletion of the old object must be handled first", a.getReplaced());
+        assertEquals(Watcher.Action.DELETED, a.getReplaced().getAction());
+        assertEquals("v1", a.getReplaced().getEntity());
+
+        // same uid, the resources still exist
+        WorkQueue.Event<String> b = queue.take();
+        assertEquals(Watcher.Action.MODIFIED, b.getAction());
+        assertNull(b.getReplaced());
+    }
+
+    @Test
+    public void testKeyIsNotHandedOutTwice() throws InterruptedException {
+        queue.add(event(Watcher.Action.ADDED, "a", "v1"));
+        WorkQueue.Event<String> first = queue.take();
+        queue.add(event(Watcher.Action.MODIFIED, "a", "v2"));
+        queue.add(event(Watcher.Action.ADDED, "b", "v1"));
+
+        // "a" is still being processed, so "b" must go first
+        WorkQueue.Event<String> next = queue.take();
+        assertEquals("ns/b", next.getKey());
+
+        queue.done(first);
+        WorkQueue.Event<String> second = queue.take();
+        assertEquals("ns/a", second.getKey());
+        assertEquals("v2", second.getEntity());
+    }
+
+    @Test
+    public void testParallelismAndPerKeyOrdering() throws InterruptedException {
+        final int keys = 8;
+        final int eventsPerKey = 50;
+        final int concurrency = 4;
+        final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+        final Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+        final AtomicInteger maxParallel = new AtomicInteger();
+        final AtomicInteger parallel = new AtomicInteger();
+        final AtomicInteger violations = new AtomicInteger();
+        final CountDownLatch finished = new CountDownLatch(keys);
+
+        for (int i = 0; i < concurrency; i++) {
+            Thread t = new Thread(() -> {
+                while (true) {
+                    WorkQueue.Event<String> event;
+                    try {
+                        event = queue.take();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (event == null) {
+                        return;
+                    }
+                    if (!inProgress.add(event.getKey())) {
+                        violations.incrementAndGet();
+                    }
+                    maxParallel.accumulateAndGet(parallel.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    int version = Integer.parseInt(event.getEntity());
+                    seen.computeIfAbsent(event.getKey(), k -> Collections.synchronizedList(new ArrayList<>())).add(version);
+                    parallel.decrementAndGet();
+                    inProgress.remove(event.getKey());
+                    queue.done(event);
+                    if (version == eventsPerKey - 1) {
+                        finished.countDown();
+                    }
+                }
+            });
+            t.setDaemon(true);
+            workers.add(t);
+            t.start();
+        }
+
+        for (int v = 0; v < eventsPerKey; v++) {
+            for (int k = 0; k < keys; k++) {
+                queue.add(event(Watcher.Action.MODIFIED, "c" + k, String.valueOf(v)));
+            }
+        }
+
+        assertTrue("all the keys should reach the last version", finished.await(30, TimeUnit.SECONDS));
+        assertEquals("the same key must never be processed concurrently", 0, violations.get());
+        assertTrue("different keys should be processed in parallel", maxParallel.get() > 1);
+        seen.forEach((key, versions) -> {
+            for (int i = 1; i < versions.size(); i++) {
+                assertTrue("versions for " + key + " must be increasing: " + versions,
+                        versions.get(i - 1) < versions.get(i));
+            }
+        });
+    }
+
+    @Test
+    public void testRequeueWithBackoff() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(10, 1000, 1000, 1000);
+        queue = new WorkQueue<>("test-retry-" + System.nanoTime(), limiter);
+        queue.add(event(Watcher.Action.ADDED, "a", "v1"));
+        WorkQueue.Event<String> failed = queue.take();
+
+        assertEquals(10, queue.requeue(failed));
+        queue.done(failed);
+        WorkQueue.Event<String> retried = queue.take();
+        assertEquals(Watcher.Action.ADDED, retried.getAction());
+        assertEquals("v1", retried.getEntity());
+        assertEquals(1, queue.attempts(retried));
+
+        assertEquals(20, queue.requeue(retried));
+        queue.done(retried);
+        queue.take();
+    }
+
+    @Test
+    public void testOutdatedRetryIsDropped() throws InterruptedException {
+        queue = new WorkQueue<>("test-outdated-" + System.nanoTime(), new RateLimiter(50, 1000, 1000, 1000));
+        queue.add(event(Watcher.Action.ADDED, "a", "v1"));
+        WorkQueue.Event<String> failed = queue.take();
+        queue.requeue(failed);
+        queue.done(failed);
+
+        // newer state arrives and is handled successfully before the retry fires
+        queue.add(event(Watcher.Action.MODIFIED, "a", "v2"));
+        WorkQueue.Event<String> newer = queue.take();
+        assertEquals("v2", newer.getEntity());
+        queue.forget(newer);
+        queue.done(newer);
+
+        Thread.sleep(200);
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testHoldAndRelease() throws InterruptedException {
+        queue.hold();
+        queue.add(event(Watcher.Action.ADDED, "a", "v1"));
+        queue.add(event(Watcher.Action.ADDED, "b", "v1"));
+        CountDownLatch taken = new CountDownLatch(1);
+        Thread consumer = new Thread(() -> {
+            try {
+                if (queue.take() != null) {
+                    taken.countDown();
+                }
+            } catch (InterruptedException e) {
+                // test is over
+            }
+        });
+        consumer.setDaemon(true);
+        workers.add(consumer);
+        consumer.start();
+        assertFalse("held queue must not hand out events", taken.await(100, TimeUnit.MILLISECONDS));
+
+        assertEquals(1, queue.release(e -> "ns/a".equals(e.getKey())));
+        assertTrue(taken.await(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testTokenBucketLimitsRetries() {
+        RateLimiter limiter = new RateLimiter(1, 1000, 10, 2);
+        assertEquals(1, limiter.when("a"));
+        assertEquals(1, limiter.when("b"));
+        // bucket is empty now, next token in ~100ms
+        assertTrue(limiter.when("c") >= 90);
+        limiter.forget("a");
+        assertEquals(0, limiter.attempts("a"));
+        assertEquals(1, limiter.attempts("b"));
+    }
+
+    private static WorkQueue.Event<String> event(Watcher.Action action, String name, String entity) {
+        return new WorkQueue.Event<>(action, entity, "ns", ResourceCache.key("ns", name));
+    }
+}
@@ -0,0 +1,41 @@
+package io.radanalytics.operator.resource;
+
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class FingerprintHelperTest {
+
+    private static final String PREFIX = "radanalytics.io/";
+
+    @Test
+    public void testFingerprintIsStable() {
+        Map<String, String> labels = new LinkedHashMap<>();
+        labels.put("a", "1");
+        labels.put("b", "2");
+        Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("b", "2");
+        reversed.put("a", "1");
+
+        Service one = service(labels, 7077);
+        Service other = service(reversed, 7077);
+        FingerprintHelper.stamp(one, PREFIX);
+        FingerprintHelper.stamp(other, PREFIX);
+        assertTrue(FingerprintHelper.getFingerprint(one, PREFIX).isPresent());
+        assertEquals(FingerprintHelper.getFingerprint(one, PREFIX), FingerprintHelper.getFingerprint(other, PREFIX));
+
+        Service changed = service(labels, 8080);
+        FingerprintHelper.stamp(changed, PREFIX);
+        assertNotEquals(FingerprintHelper.getFingerprint(one, PREFIX), FingerprintHelper.getFingerprint(changed, PREFIX));
+    }
+
+    private static Service service(Map<String, String> labels, int port) {
+        return new ServiceBuilder().withNewMetadata().withName("my-cluster").withLabels(labels).endMetadata()
+                .withNewSpec().addNewPort().withPort(port).endPort().endSpec().build();
+    }
+}
@@ -0,0 +1,44 @@
+package io.radanalytics.operator.resource;
+
+import io.fabric8.kubernetes.api.model.KubernetesList;
+import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import io.fabric8.kubernetes.api.model.OwnerReference;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OwnerReferenceHelperTest {
+
+    private static final String PREFIX = "radanalytics.io/";
+
+    @Test
+    public void testOwnerIsPartOfTheFingerprint() {
+        OwnerReference owner = OwnerReferenceHelper.controller("radanalytics.io/v1", "SparkCluster", "my-cluster", "uid-1");
+        OwnerReference recreated = OwnerReferenceHelper.controller("radanalytics.io/v1", "SparkCluster", "my-cluster", "uid-2");
+
+        KubernetesList one = list(owner);
+        KubernetesList other = list(recreated);
+        Service service = (Service) one.getItems().get(0);
+        assertTrue(OwnerReferenceHelper.hasController(service));
+        assertEquals("uid-1", service.getMetadata().getOwnerReferences().get(0).getUid());
+        assertNotEquals(FingerprintHelper.getFingerprint(service, PREFIX),
+                FingerprintHelper.getFingerprint(other.getItems().get(0), PREFIX));
+    }
+
+    @Test
+    public void testNoOwnerInConfigMapMode() {
+        KubernetesList list = list(null);
+        assertFalse(OwnerReferenceHelper.hasController(list.getItems().get(0)));
+    }
+
+    private static KubernetesList list(OwnerReference owner) {
+        Service service = new ServiceBuilder().withNewMetadata().withName("my-cluster").endMetadata()
+                .withNewSpec().addNewPort().withPort(7077).endPort().endSpec().build();
+        KubernetesList list = new KubernetesListBuilder().withItems(service).build();
+        OwnerReferenceHelper.setOwner(list, owner);
+        FingerprintHelper.stamp(list, PREFIX);
+        return list;
+    }
+}
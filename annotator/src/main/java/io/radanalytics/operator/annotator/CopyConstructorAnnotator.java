@@ -0,0 +1,137 @@
+package io.radanalytics.operator.annotator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sun.codemodel.ClassType;
+import com.sun.codemodel.JBlock;
+import com.sun.codemodel.JClass;
+import com.sun.codemodel.JCodeModel;
+import com.sun.codemodel.JConditional;
+import com.sun.codemodel.JDefinedClass;
+import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
+import com.sun.codemodel.JFieldRef;
+import com.sun.codemodel.JFieldVar;
+import com.sun.codemodel.JForEach;
+import com.sun.codemodel.JMethod;
+import com.sun.codemodel.JMod;
+import com.sun.codemodel.JOp;
+import com.sun.codemodel.JType;
+import com.sun.codemodel.JVar;
+import org.jsonschema2pojo.AbstractAnnotator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adds a copy constructor to the generated classes, so the instances can be deep-copied without a round-trip through
+ * JSON. The nested generated objects and the collections are copied, the strings, numbers, enums and the values of
+ * the maps are shared, because they are immutable or come straight from the parsed JSON. If the class extends an
+ * existing java type, that type has to provide a copy constructor too.
+ */
+public class CopyConstructorAnnotator extends AbstractAnnotator {
+
+    private static final String SOURCE = "source";
+
+    @Override
+    public void propertyField(JFieldVar field, JDefinedClass clazz, String propertyName, JsonNode propertyNode) {
+        copyField(clazz, field);
+    }
+
+    @Override
+    public void additionalPropertiesField(JFieldVar field, JDefinedClass clazz, String propertyName) {
+        copyField(clazz, field);
+    }
+
+    private static void copyField(JDefinedClass clazz, JFieldVar field) {
+        JMethod constructor = copyConstructor(clazz);
+        JBlock body = constructor.body();
+        JFieldRef value = constructor.params().get(0).ref(field);
+        JType type = field.type();
+        JCodeModel owner = clazz.owner();
+
+        if (isCollection(owner, type) && isCopied(itemType(type))) {
+            JClass item = itemType(type);
+            JConditional notNull = body._if(value.ne(JExpr._null()));
+            JBlock copy = notNull._then();
+            copy.assign(JExpr._this().ref(field), JExpr._new(concreteCollection(owner, (JClass) type))
+                    .arg(value.invoke("size")));
+            JForEach forEach = copy.forEach(item, "item", value);
+            forEach.body().add(JExpr._this().ref(field).invoke("add").arg(copyOf(item, forEach.var())));
+            notNull._else().assign(JExpr._this().ref(field), JExpr._null());
+        } else if (isCollection(owner, type) || isMap(owner, type)) {
+            JClass copy = isMap(owner, type) ? concreteMap(owner, (JClass) type)
+                    : concreteCollection(owner, (JClass) type);
+            body.assign(JExpr._this().ref(field),
+                    JOp.cond(value.eq(JExpr._null()), JExpr._null(), JExpr._new(copy).arg(value)));
+        } else {
+            body.assign(JExpr._this().ref(field), copyOf(type, value));
+        }
+    }
+
+    /**
+     * Returns the copy constructor of the class, it's created together with the no-args constructor when the first
+     * field is added.
+     */
+    private static JMethod copyConstructor(JDefinedClass clazz) {
+        JMethod constructor = clazz.getConstructor(new JType[]{clazz});
+        if (constructor != null) {
+            return constructor;
+        }
+        JMethod noArgs = clazz.constructor(JMod.PUBLIC);
+        noArgs.javadoc().add("No args constructor for use in serialization");
+
+        constructor = clazz.constructor(JMod.PUBLIC);
+        JVar source = constructor.param(clazz, SOURCE);
+        constructor.javadoc().add("Deep copy of the given instance.");
+        constructor.javadoc().addParam(source).add("instance to copy");
+        if (!Object.class.getName().equals(clazz._extends().fullName())) {
+            constructor.body().invoke("super").arg(source);
+        }
+        return constructor;
+    }
+
+    private static JExpression copyOf(JType type, JExpression value) {
+        if (!isCopied(type)) {
+            return value;
+        }
+        return JOp.cond(value.eq(JExpr._null()), JExpr._null(), JExpr._new(type).arg(value));
+    }
+
+    /**
+     * @return true for the generated classes, they have the copy constructor
+     */
+    private static boolean isCopied(JType type) {
+        return type instanceof JDefinedClass && ((JDefinedClass) type).getClassType() == ClassType.CLASS;
+    }
+
+    private static JClass itemType(JType collection) {
+        List<JClass> parameters = ((JClass) collection).getTypeParameters();
+        return parameters.isEmpty() ? null : parameters.get(0);
+    }
+
+    private static boolean isCollection(JCodeModel owner, JType type) {
+        return type instanceof JClass && owner.ref(Collection.class).isAssignableFrom(((JClass) type).erasure());
+    }
+
+    private static boolean isMap(JCodeModel owner, JType type) {
+        return type instanceof JClass && owner.ref(Map.class).isAssignableFrom(((JClass) type).erasure());
+    }
+
+    private static JClass concreteCollection(JCodeModel owner, JClass type) {
+        Class<?> impl = owner.ref(Set.class).isAssignableFrom(type.erasure()) ? LinkedHashSet.class : ArrayList.class;
+        return narrow(owner.ref(impl), type);
+    }
+
+    private static JClass concreteMap(JCodeModel owner, JClass type) {
+        return narrow(owner.ref(LinkedHashMap.class), type);
+    }
+
+    private static JClass narrow(JClass impl, JClass type) {
+        return type.getTypeParameters().isEmpty() ? impl : impl.narrow(type.getTypeParameters());
+    }
+}
@@ -0,0 +1,13 @@
+package io.radanalytics.operator.annotator;
+
+import org.jsonschema2pojo.CompositeAnnotator;
+
+/**
+ * The jsonschema2pojo plugin accepts only one custom annotator, this one combines all the annotators of the operator.
+ */
+public class OperatorAnnotator extends CompositeAnnotator {
+
+    public OperatorAnnotator() {
+        super(new RegisterForReflectionAnnotator(), new CopyConstructorAnnotator());
+    }
+}
@@ -12,6 +12,7 @@ import io.fabric8.openshift.client.DefaultOpenShiftClient;
 import io.quarkus.runtime.ShutdownEvent;
 import io.quarkus.runtime.StartupEvent;
 import io.radanalytics.operator.common.AnsiColors;
+import io.radanalytics.operator.common.OperatorExecutors;
 import org.slf4j.Logger;
 
 import javax.enterprise.context.ApplicationScoped;
@@ -20,7 +21,6 @@ import javax.inject.Inject;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 
@@ -66,10 +66,10 @@ public class SparkOperatorEntrypoint{
             client.resourceList(k8sResources).inNamespace(client.getNamespace()).createOrReplace();
 
             if (entrypoint.isOpenShift()) {
-                ScheduledExecutorService s = Executors.newScheduledThreadPool(1);
+                ScheduledExecutorService s = OperatorExecutors.get().scheduler();
                 int delay = 6;
                 ScheduledFuture<?> future =
-                        s.schedule(() -> {
+                        s.schedule(() -> OperatorExecutors.get().blocking().execute(() -> {
                             try {
                                 List<Route> routes = new DefaultOpenShiftClient().routes().withLabels(Collections.singletonMap("type", "operator-metrics")).list().getItems();
                                 if (!routes.isEmpty()) {
@@ -81,7 +81,7 @@ public class SparkOperatorEntrypoint{
                                 log.warn("error during route retrieval: {}", t.getMessage());
                                 t.printStackTrace();
                             }
-                        }, delay, SECONDS);
+                        }), delay, SECONDS);
             }
         }
 
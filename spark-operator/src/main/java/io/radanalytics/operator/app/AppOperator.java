@@ -1,14 +1,18 @@
 package io.radanalytics.operator.app;
 
 import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClient;
 import io.radanalytics.operator.common.AbstractOperator;
 import io.radanalytics.operator.common.Operator;
+import io.radanalytics.operator.common.ReconcileContext;
+import io.radanalytics.operator.common.ResourceApplier;
+import io.radanalytics.operator.common.ResourceCache;
 import io.radanalytics.types.SparkApplication;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -19,72 +23,93 @@ public class AppOperator extends AbstractOperator<SparkApplication> {
     @Inject
     private Logger log;
     private KubernetesAppDeployer deployer;
+    private ResourceApplier applier;
+    // keyed by namespace/name
     private Map<String, SparkApplication> apps;
 
     public AppOperator(){
-        this.apps = new HashMap<>();
+        this.apps = new ConcurrentHashMap<>();
     }
 
-    private void put(SparkApplication app) {
-        apps.put(app.getName(), app);
+    private void put(SparkApplication app, String ns) {
+        apps.put(ResourceCache.key(ns, app.getName()), app);
     }
 
-    private void delete(String name) {
-        if (apps.containsKey(name)) {
-            apps.remove(name);
-        }
+    private void delete(String name, String ns) {
+        apps.remove(ResourceCache.key(ns, name));
     }
 
-    private SparkApplication getApp(String name) {
-        return this.apps.get(name);
+    private SparkApplication getApp(String name, String ns) {
+        return this.apps.get(ResourceCache.key(ns, name));
     }
 
     private void updateStatus(SparkApplication app, String state) {
-	    for (int i=0; i<3; i++) {
-            try {
-	            setCRStatus(state, app.getNamespace(), app.getName() );
-		        break;
-	        }
-	        catch(Exception e) {
-                try {Thread.sleep(500);} catch(Exception t) {}
-	        }
-	    }
+        // written in the background, see StatusWriter
+        setCRStatus(state, app.getNamespace(), app.getName());
     }
 
     @Override
     protected void onInit() {
         this.deployer = new KubernetesAppDeployer(entityName, prefix);
+        this.applier = new ResourceApplier(prefix);
     }
 
     @Override
-    protected void onAdd(SparkApplication app) {
-        KubernetesResourceList list = deployer.getResourceList(app, namespace);
-        client.resourceList(list).inNamespace(namespace).createOrReplace();
+    protected void onAdd(SparkApplication app, ReconcileContext context) {
+        KubernetesResourceList list = deployer.getResourceList(app, context.getNamespace(),
+                getOwnerReference(context.getNamespace(), app.getName()));
+        applier.apply(context.getClient(), context.getNamespace(), list);
         updateStatus(app, "ready" );
-        put(app);
+        put(app, context.getNamespace());
     }
 
     @Override
-    protected void onModify(SparkApplication newApp) {
+    protected void onModify(SparkApplication newApp, ReconcileContext context) {
 
         // TODO This comparison works to rule out a change in status because
         // we added the status block in the AbstractOperator universally,
         // ie it is not actually included in the SparkApplication type
         // definition generated from json. If that ever changes, then
         // this comparison will have to be a little smarter.
-        SparkApplication existingApp = getApp(newApp.getName());
+        SparkApplication existingApp = getApp(newApp.getName(), context.getNamespace());
         if (null == existingApp || !newApp.equals(existingApp)) {
-            super.onModify(newApp);
+            // the application is submitted again, the custom resource still exists so nothing is garbage collected
+            deleteResources(newApp.getName(), context.getNamespace(), context.getClient());
+            checkDeleted(newApp.getName(), context.getNamespace(), context.getClient());
+            onAdd(newApp, context);
         }
     }
 
     @Override
-    protected void onDelete(SparkApplication app) {
+    protected void onDelete(SparkApplication app, ReconcileContext context) {
+        String ns = context.getNamespace();
         String name = app.getName();
         updateStatus(app, "deleted");
-        delete(name);
-        client.services().inNamespace(namespace).withLabels(deployer.getLabelsForDeletion(name)).delete();
-        client.replicationControllers().inNamespace(namespace).withLabels(deployer.getLabelsForDeletion(name)).delete();
-        client.pods().inNamespace(namespace).withLabels(deployer.getLabelsForDeletion(name)).delete();
+        delete(name, ns);
+        if (isCrd) {
+            // the submitter is owned by the custom resource and garbage collected, the driver pod (which owns its
+            // executors and service) is created by spark-submit, so it has to be deleted here
+            context.getClient().pods().inNamespace(ns).withLabels(deployer.getLabelsForDeletion(name)).delete();
+        } else {
+            deleteResources(name, ns, context.getClient());
+        }
+    }
+
+    private void deleteResources(String name, String ns, KubernetesClient client) {
+        client.services().inNamespace(ns).withLabels(deployer.getLabelsForDeletion(name)).delete();
+        client.replicationControllers().inNamespace(ns).withLabels(deployer.getLabelsForDeletion(name)).delete();
+        client.pods().inNamespace(ns).withLabels(deployer.getLabelsForDeletion(name)).delete();
+    }
+
+    /**
+     * The deletion is asynchronous, the old submitter has to be gone before the new one is created, otherwise it would
+     * be patched and then garbage collected. If it's still there, the modification fails and the work queue retries it
+     * with a backoff, the worker is not blocked in the meantime.
+     */
+    private void checkDeleted(String name, String ns, KubernetesClient client) {
+        Map<String, String> labels = deployer.getLabelsForDeletion(name);
+        if (!client.replicationControllers().inNamespace(ns).withLabels(labels).list().getItems().isEmpty()) {
+            throw new IllegalStateException("submitter of application " + name + " is still being deleted");
+        }
     }
 }
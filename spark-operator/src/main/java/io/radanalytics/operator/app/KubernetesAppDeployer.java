@@ -1,6 +1,9 @@
 package io.radanalytics.operator.app;
 
 import io.fabric8.kubernetes.api.model.*;
+import io.radanalytics.operator.common.RenderCache;
+import io.radanalytics.operator.resource.FingerprintHelper;
+import io.radanalytics.operator.resource.OwnerReferenceHelper;
 import io.radanalytics.types.Deps;
 import io.radanalytics.types.Executor;
 import io.radanalytics.types.Driver;
@@ -17,16 +20,32 @@ public class KubernetesAppDeployer {
 
     private String entityName;
     private String prefix;
+    private final RenderCache<SparkApplication> renders;
 
     KubernetesAppDeployer(String entityName, String prefix) {
         this.entityName = entityName;
         this.prefix = prefix;
+        this.renders = new RenderCache<>(entityName);
     }
 
-    public KubernetesResourceList getResourceList(SparkApplication app, String namespace) {
+    /**
+     * @param app       application to render
+     * @param namespace namespace of the application
+     * @param owner     owner reference to the custom resource or null in the config map mode
+     * @return rendered and stamped resources, they may be shared with other callers, so they must not be modified
+     */
+    public KubernetesResourceList getResourceList(SparkApplication app, String namespace, OwnerReference owner) {
+        List<Object> env = Arrays.asList(namespace, getDefaultSparkAppImage(), owner);
+        return renders.get(app, env, a -> render(a, namespace, owner));
+    }
+
+    private KubernetesResourceList render(SparkApplication app, String namespace, OwnerReference owner) {
         checkForInjectionVulnerabilities(app, namespace);
         ReplicationController submitter = getSubmitterRc(app, namespace);
         KubernetesList resources = new KubernetesListBuilder().withItems(submitter).build();
+        // the driver pod is created by spark-submit, so only the submitter is owned by the custom resource
+        OwnerReferenceHelper.setOwner(resources, owner);
+        FingerprintHelper.stamp(resources, prefix);
         return resources;
     }
 
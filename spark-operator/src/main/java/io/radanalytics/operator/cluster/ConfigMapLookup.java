@@ -0,0 +1,44 @@
+package io.radanalytics.operator.cluster;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.radanalytics.operator.common.ResourceCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.radanalytics.operator.common.OperatorConfig.ALL_NAMESPACES;
+
+/**
+ * Tells whether the config maps referenced by the clusters (sparkConfigurationMap) exist. The answers come from the
+ * caches of the config map informers, one per watched namespace (or one for all of them if the operator watches all
+ * the namespaces), so the rendering never calls the Kubernetes API.
+ */
+class ConfigMapLookup {
+
+    // namespace or "*" -> informer's cache of the config maps in it
+    private final Map<String, ResourceCache<ConfigMap>> caches = new ConcurrentHashMap<>();
+
+    /**
+     * @param namespace watched namespace or <code>"*"</code>
+     * @param cache     informer's cache of the config maps in the namespace
+     * @return this
+     */
+    ConfigMapLookup add(String namespace, ResourceCache<ConfigMap> cache) {
+        caches.put(namespace, cache);
+        return this;
+    }
+
+    /**
+     * @param namespace namespace of the config map
+     * @param name      name of the config map
+     * @return true if the config map exists and has some data, false also for the namespaces that are not watched
+     */
+    boolean exists(String namespace, String name) {
+        ResourceCache<ConfigMap> cache = caches.get(namespace);
+        if (cache == null) {
+            cache = caches.get(ALL_NAMESPACES);
+        }
+        ConfigMap configMap = cache == null ? null : cache.get(namespace, name);
+        return configMap != null && configMap.getData() != null && !configMap.getData().isEmpty();
+    }
+}
@@ -21,7 +21,7 @@ public class InitContainersHelper {
      * Based on the SparkCluster configuration, it can add init-containers called 'downloader', 'backup-config' and/or
      * 'override-config'. The firs one will be added if the <code>cluster.getDownloadData()</code> is not empty, while the
      * latter two are always being added together if config map that overrides the default spark configuration exist in the
-     * K8s or if the <code>cluster.getSparkConfiguration()</code> is not empty.
+     * K8s or if the <code>sparkConfiguration</code> is not empty.
      *
      * Optionally adds the init containers that do:
      * <ol>
@@ -35,12 +35,14 @@ public class InitContainersHelper {
      *
      *
      * @param rc ReplicationController instance
-     * @param cluster SparkCluster instance
+     * @param cluster SparkCluster instance, it's not modified
+     * @param sparkConfiguration spark configuration of the cluster including the entries added by the operator
      * @param cmExists whether config map with overrides exists
      * @return modified ReplicationController instance
      */
     public static final ReplicationController addInitContainers(ReplicationController rc,
                                                                  SparkCluster cluster,
+                                                                 List<SparkConfiguration> sparkConfiguration,
                                                                  boolean cmExists,
                                                                  boolean isMaster) {
         PodSpec podSpec = rc.getSpec().getTemplate().getSpec();
@@ -52,9 +54,9 @@ public class InitContainersHelper {
         if (!cluster.getDownloadData().isEmpty()) {
             createDownloader(cluster, podSpec);
         }
-        if (cmExists || !cluster.getSparkConfiguration().isEmpty()) {
+        if (cmExists || !sparkConfiguration.isEmpty()) {
             createBackupContainer(cluster, podSpec);
-            createConfigOverrideContainer(cluster, podSpec, cmExists);
+            createConfigOverrideContainer(cluster, sparkConfiguration, podSpec, cmExists);
         }
 
         rc.getSpec().getTemplate().setSpec(podSpec);
@@ -146,8 +148,8 @@ public class InitContainersHelper {
         return chmod;
     }
 
-    private static Container createConfigOverrideContainer(SparkCluster cluster, PodSpec podSpec, boolean cmExists) {
-        final List<io.radanalytics.types.SparkConfiguration> config = cluster.getSparkConfiguration();
+    private static Container createConfigOverrideContainer(SparkCluster cluster, List<SparkConfiguration> config,
+                                                           PodSpec podSpec, boolean cmExists) {
         String cmMountName = "configmap-dir";
         String cmMountPath = "/tmp/config/fromCM";
         List<VolumeMount> mounts = new ArrayList<>(2);
@@ -251,15 +253,17 @@ public class InitContainersHelper {
      * Also worker node gets some minor penalisation, because its probe depends on the master's readiness.
      *
      * @param cluster SparkCluster instance
+     * @param sparkConfiguration spark configuration of the cluster including the entries added by the operator
      * @param cmExists if config map with overrides exists
      * @param isMaster whether it is master or worker
      * @return expected time for initial delay for the probes
      */
-    public static int getExpectedDelay(SparkCluster cluster, boolean cmExists, boolean isMaster) {
+    public static int getExpectedDelay(SparkCluster cluster, List<SparkConfiguration> sparkConfiguration,
+                                       boolean cmExists, boolean isMaster) {
         // todo: honor the chmod init cont.
         int delay = 6;
         delay += cmExists ? 3 : 0;
-        delay += !cluster.getSparkConfiguration().isEmpty() ? 3 : 0;
+        delay += !sparkConfiguration.isEmpty() ? 3 : 0;
         delay += cluster.getDownloadData().size() * 4;
         delay += cluster.getMavenDependencies().isEmpty() ? 0 : 42;
         delay += cluster.getMavenDependencies().size() * 5;
@@ -1,9 +1,11 @@
 package io.radanalytics.operator.cluster;
 
 import io.fabric8.kubernetes.api.model.*;
-import io.fabric8.kubernetes.client.KubernetesClient;
+import io.radanalytics.operator.common.RenderCache;
 import io.radanalytics.operator.historyServer.HistoryServerHelper;
+import io.radanalytics.operator.resource.FingerprintHelper;
 import io.radanalytics.operator.resource.LabelsHelper;
+import io.radanalytics.operator.resource.OwnerReferenceHelper;
 import io.radanalytics.types.*;
 
 import java.util.*;
@@ -12,53 +14,82 @@ import static io.radanalytics.operator.Constants.*;
 import static io.radanalytics.operator.resource.LabelsHelper.OPERATOR_KIND_LABEL;
 
 public class KubernetesSparkClusterDeployer {
-    private KubernetesClient client;
     private String entityName;
     private String prefix;
     private String namespace;
-
-    KubernetesSparkClusterDeployer(KubernetesClient client, String entityName, String prefix, String namespace) {
-        this.client = client;
+    private ConfigMapLookup configMaps;
+    private final RenderCache<SparkCluster> renders;
+
+    /**
+     * @param configMaps informers' caches of the config maps in the watched namespaces, rendering doesn't call the
+     *                   Kubernetes API
+     */
+    KubernetesSparkClusterDeployer(String entityName, String prefix, String namespace, ConfigMapLookup configMaps) {
         this.entityName = entityName;
         this.prefix = prefix;
         this.namespace = namespace;
+        this.configMaps = configMaps;
+        this.renders = new RenderCache<>(entityName);
     }
 
-    public KubernetesResourceList getResourceList(SparkCluster cluster) {
-        synchronized (this.client) {
-            checkForInjectionVulnerabilities(cluster, namespace);
-            String name = cluster.getName();
+    /**
+     * @param cluster cluster to render, it's not modified
+     * @param owner   owner reference to the custom resource or null in the config map mode
+     * @return rendered and stamped resources of the cluster, they may be shared with other callers, so they must not
+     * be modified
+     */
+    public KubernetesResourceList getResourceList(SparkCluster cluster, OwnerReference owner) {
+        RenderEnvironment env = environment(cluster, owner);
+        return renders.get(cluster, env, c -> render(c, env));
+    }
 
-            Map<String, String> allMasterLabels = new HashMap<>();
-            if (cluster.getLabels() != null) allMasterLabels.putAll(cluster.getLabels());
-            if (cluster.getMaster() != null && cluster.getMaster().getLabels() != null)
-                allMasterLabels.putAll(cluster.getMaster().getLabels());
+    /**
+     * @param cluster cluster to render
+     * @param owner   owner reference to the custom resource or null in the config map mode
+     * @return snapshot of what the rendering depends on besides the spec, it's read from the informer caches
+     */
+    RenderEnvironment environment(SparkCluster cluster, OwnerReference owner) {
+        boolean cmExists = cmExists(InitContainersHelper.getExpectedCMName(cluster), cluster.getNamespace());
+        return new RenderEnvironment(cmExists, getDefaultSparkImage(), owner);
+    }
 
-            ReplicationController masterRc = getRCforMaster(cluster);
-            ReplicationController workerRc = getRCforWorker(cluster);
-            Service masterService = getService(false, name, 7077, allMasterLabels);
-            List<HasMetadata> list = new ArrayList<>(Arrays.asList(masterRc, workerRc, masterService));
-            if (cluster.getSparkWebUI()) {
-                Service masterUiService = getService(true, name, 8080, allMasterLabels);
-                list.add(masterUiService);
-            }
+    /**
+     * Renders the resources of the cluster. It's a pure function of its arguments: the cluster is not modified (the
+     * spark configuration and the commands are augmented in new lists) and nothing else is read, so it can be called
+     * from many threads at once without any locking.
+     *
+     * @param cluster cluster to render
+     * @param env     environment snapshot, see {@link #environment(SparkCluster, OwnerReference)}
+     * @return rendered and stamped resources of the cluster
+     */
+    KubernetesResourceList render(SparkCluster cluster, RenderEnvironment env) {
+        checkForInjectionVulnerabilities(cluster, namespace);
+        String name = cluster.getName();
 
-            // pvc for history server (in case of sharedVolume strategy)
-            if (HistoryServerHelper.needsVolume(cluster)) {
-                PersistentVolumeClaim pvc = getPersistentVolumeClaim(cluster, getDefaultLabels(name));
-                list.add(pvc);
-            }
-            KubernetesList resources = new KubernetesListBuilder().withItems(list).build();
-            return resources;
+        Map<String, String> allMasterLabels = new HashMap<>();
+        if (cluster.getLabels() != null) allMasterLabels.putAll(cluster.getLabels());
+        if (cluster.getMaster() != null && cluster.getMaster().getLabels() != null)
+            allMasterLabels.putAll(cluster.getMaster().getLabels());
+
+        List<SparkConfiguration> sparkConfiguration = getSparkConfiguration(cluster);
+        ReplicationController masterRc = getRCforMasterOrWorker(true, cluster, sparkConfiguration, env);
+        ReplicationController workerRc = getRCforMasterOrWorker(false, cluster, sparkConfiguration, env);
+        Service masterService = getService(false, name, 7077, allMasterLabels);
+        List<HasMetadata> list = new ArrayList<>(Arrays.asList(masterRc, workerRc, masterService));
+        if (cluster.getSparkWebUI()) {
+            Service masterUiService = getService(true, name, 8080, allMasterLabels);
+            list.add(masterUiService);
         }
-    }
 
-    private ReplicationController getRCforMaster(SparkCluster cluster) {
-        return getRCforMasterOrWorker(true, cluster);
-    }
-
-    private ReplicationController getRCforWorker(SparkCluster cluster) {
-        return getRCforMasterOrWorker(false, cluster);
+        // pvc for history server (in case of sharedVolume strategy)
+        if (HistoryServerHelper.needsVolume(cluster)) {
+            PersistentVolumeClaim pvc = getPersistentVolumeClaim(cluster, getDefaultLabels(name));
+            list.add(pvc);
+        }
+        KubernetesList resources = new KubernetesListBuilder().withItems(list).build();
+        OwnerReferenceHelper.setOwner(resources, env.getOwner());
+        FingerprintHelper.stamp(resources, prefix);
+        return resources;
     }
 
     private Service getService(boolean isUi, String name, int port, Map<String, String> allMasterLabels) {
@@ -78,7 +109,9 @@ public class KubernetesSparkClusterDeployer {
         return new EnvVarBuilder().withName(key).withValue(value).build();
     }
 
-    private ReplicationController getRCforMasterOrWorker(boolean isMaster, SparkCluster cluster) {
+    private ReplicationController getRCforMasterOrWorker(boolean isMaster, SparkCluster cluster,
+                                                         List<SparkConfiguration> sparkConfiguration,
+                                                         RenderEnvironment env) {
         String name = cluster.getName();
         String podName = name + (isMaster ? "-m" : "-w");
         Map<String, String> selector = getSelector(name, podName);
@@ -110,10 +143,9 @@ public class KubernetesSparkClusterDeployer {
             ports.add(metricsPort);
         }
 
-        final String cmName = InitContainersHelper.getExpectedCMName(cluster);
-        final boolean cmExists = cmExists(cmName);
-        final int expectedMasterDelay = InitContainersHelper.getExpectedDelay(cluster, cmExists, true);
-        final int expectedWorkerDelay = InitContainersHelper.getExpectedDelay(cluster, cmExists, false);
+        final boolean cmExists = env.isConfigMapExists();
+        final int expectedMasterDelay = InitContainersHelper.getExpectedDelay(cluster, sparkConfiguration, cmExists, true);
+        final int expectedWorkerDelay = InitContainersHelper.getExpectedDelay(cluster, sparkConfiguration, cmExists, false);
         Probe masterReadiness = new ProbeBuilder().withNewExec().withCommand(Arrays.asList("/bin/bash", "-c", "curl -s localhost:8080 | grep -e Status.*ALIVE")).endExec()
                 .withFailureThreshold(3)
                 .withInitialDelaySeconds(expectedMasterDelay - 4)
@@ -140,7 +172,7 @@ public class KubernetesSparkClusterDeployer {
                 .withInitialDelaySeconds(isMaster ? expectedMasterDelay : expectedWorkerDelay)
                 .withTimeoutSeconds(1).build();
 
-        String imageRef = getDefaultSparkImage(); // from Constants
+        String imageRef = env.getDefaultImage();
         if (cluster.getCustomImage() != null) {
             imageRef = cluster.getCustomImage();
         }
@@ -185,14 +217,9 @@ public class KubernetesSparkClusterDeployer {
 
         ReplicationController rc = rcBuilder.endSpec().endTemplate().endSpec().build();
 
-        // history server
-        if (isMaster && null != cluster.getHistoryServer()) {
-            augmentSparkConfWithHistoryServer(cluster);
-        }
-
         // add init containers that will prepare the data on the nodes or override the configuration
-        if (!cluster.getDownloadData().isEmpty() || !cluster.getSparkConfiguration().isEmpty() || cmExists) {
-            InitContainersHelper.addInitContainers(rc, cluster, cmExists, isMaster);
+        if (!cluster.getDownloadData().isEmpty() || !sparkConfiguration.isEmpty() || cmExists) {
+            InitContainersHelper.addInitContainers(rc, cluster, sparkConfiguration, cmExists, isMaster);
         }
         return rc;
     }
@@ -214,31 +241,36 @@ public class KubernetesSparkClusterDeployer {
         return pvc;
     }
 
-    private void augmentSparkConfWithHistoryServer(SparkCluster cluster) {
-
-        String eventLog;
-        if (HistoryServerHelper.needsVolume(cluster)) {
-            SharedVolume sharedVolume = Optional.ofNullable(cluster.getHistoryServer().getSharedVolume()).orElse(new SharedVolume());
-            eventLog = sharedVolume.getMountPath();
-        } else {
-            eventLog = cluster.getHistoryServer().getRemoteURI();
+    /**
+     * @param cluster cluster to render
+     * @return new list with the spark configuration of the cluster and the entries added by the operator in front of
+     * it (event log for the history server, ivy cache for the maven dependencies)
+     */
+    private List<SparkConfiguration> getSparkConfiguration(SparkCluster cluster) {
+        List<SparkConfiguration> result = new ArrayList<>(cluster.getSparkConfiguration().size() + 3);
+        if (null != cluster.getHistoryServer()) {
+            String eventLog;
+            if (HistoryServerHelper.needsVolume(cluster)) {
+                SharedVolume sharedVolume = Optional.ofNullable(cluster.getHistoryServer().getSharedVolume()).orElse(new SharedVolume());
+                eventLog = sharedVolume.getMountPath();
+            } else {
+                eventLog = cluster.getHistoryServer().getRemoteURI();
+            }
+            result.add(sparkConf("spark.eventLog.enabled", "true"));
+            result.add(sparkConf("spark.eventLog.dir", eventLog));
         }
-
-        SparkConfiguration nv1 = new SparkConfiguration();
-        nv1.setName("spark.eventLog.dir");
-        nv1.setValue(eventLog);
-        SparkConfiguration nv2 = new SparkConfiguration();
-        nv2.setName("spark.eventLog.enabled");
-        nv2.setValue("true");
-        cluster.getSparkConfiguration().add(0, nv1);
-        cluster.getSparkConfiguration().add(0, nv2);
+        if (!cluster.getMavenDependencies().isEmpty()) {
+            result.add(sparkConf("spark.jars.ivy", "/tmp"));
+        }
+        result.addAll(cluster.getSparkConfiguration());
+        return result;
     }
 
-    private void augmentSparkConfWithJarsPath(SparkCluster cluster) {
+    private static SparkConfiguration sparkConf(String name, String value) {
         SparkConfiguration nv = new SparkConfiguration();
-        nv.setName("spark.jars.ivy");
-        nv.setValue("/tmp");
-        cluster.getSparkConfiguration().add(0, nv);
+        nv.setName(name);
+        nv.setValue(value);
+        return nv;
     }
 
     private void getLimitRequestValues(Boolean isMaster, Master m, Worker w, Map<String, Quantity> limits, Map<String, Quantity> requests) {
@@ -295,11 +327,12 @@ public class KubernetesSparkClusterDeployer {
         
         builder = builder.withResources(new ResourceRequirements(limits, requests));
 
+        // copies, the spec must not be modified
+        List<String> command = new ArrayList<>(isMaster ? m.getCommand() : w.getCommand());
+        List<String> commandArgs = new ArrayList<>(isMaster ? m.getCommandArgs() : w.getCommandArgs());
+
         // if maven deps are not empty let spark-submit to download them
         if (!cluster.getMavenDependencies().isEmpty()) {
-            augmentSparkConfWithJarsPath(cluster);
-            List<String> command = isMaster ? m.getCommand() : w.getCommand();
-            List<String> commandArgs = isMaster ? m.getCommandArgs() : w.getCommandArgs();
             if (!command.isEmpty() || !commandArgs.isEmpty()) {
                 throw new IllegalArgumentException("Use either custom mavenDependencies or custom starting command for the image. Unfortunately, you can't have both.");
             }
@@ -314,11 +347,9 @@ public class KubernetesSparkClusterDeployer {
                     "--class no-op-ignore-this 0 || true; /entrypoint /launch.sh");
         }
 
-        List<String> command = isMaster ? m.getCommand() : w.getCommand();
         if (!command.isEmpty()) {
             builder = builder.withCommand(command);
         }
-        List<String> commandArgs = isMaster ? m.getCommandArgs() : w.getCommandArgs();
         if (!commandArgs.isEmpty()) {
             builder = builder.withArgs(commandArgs);
         }
@@ -345,15 +376,9 @@ public class KubernetesSparkClusterDeployer {
     }
 
 
-    private boolean cmExists(String name) {
-        ConfigMap configMap;
-        if ("*".equals(namespace)) {
-            List<ConfigMap> items = client.configMaps().inAnyNamespace().withField("metadata.name", name).list().getItems();
-            configMap = items != null && !items.isEmpty() ? items.get(0) : null;
-        } else {
-            configMap = client.configMaps().inNamespace(namespace).withName(name).get();
-        }
-        return configMap != null && configMap.getData() != null && !configMap.getData().isEmpty();
+    private boolean cmExists(String name, String clusterNamespace) {
+        String namespace = clusterNamespace != null ? clusterNamespace : this.namespace;
+        return configMaps.exists(namespace, name);
     }
 
     private Map<String, String> getSelector(String clusterName, String podName) {
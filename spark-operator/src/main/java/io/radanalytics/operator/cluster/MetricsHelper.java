@@ -29,4 +29,10 @@ public class MetricsHelper {
             .help("Spark clusters has been started by operator.")
             .labelNames("ns")
             .register();
+
+    public static final Counter clusterChanges = Counter.build()
+            .name(PREFIX + "cluster_changes_total")
+            .help("Modifications of the spark clusters by the kind of the change.")
+            .labelNames("type", "ns")
+            .register();
 }
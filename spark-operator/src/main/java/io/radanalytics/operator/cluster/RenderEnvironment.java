@@ -0,0 +1,64 @@
+package io.radanalytics.operator.cluster;
+
+import io.fabric8.kubernetes.api.model.OwnerReference;
+
+import java.util.Objects;
+
+/**
+ * Snapshot of everything besides the cluster spec that the rendered resources depend on. Together with the spec it
+ * fully determines the output of {@link KubernetesSparkClusterDeployer#render(io.radanalytics.types.SparkCluster,
+ * RenderEnvironment)}.
+ */
+final class RenderEnvironment {
+
+    private final boolean configMapExists;
+    private final String defaultImage;
+    private final OwnerReference owner;
+
+    /**
+     * @param configMapExists whether the config map with the spark configuration exists and has some data
+     * @param defaultImage    image used when the cluster doesn't specify its own
+     * @param owner           owner reference to the custom resource or null in the config map mode
+     */
+    RenderEnvironment(boolean configMapExists, String defaultImage, OwnerReference owner) {
+        this.configMapExists = configMapExists;
+        this.defaultImage = defaultImage;
+        this.owner = owner;
+    }
+
+    boolean isConfigMapExists() {
+        return configMapExists;
+    }
+
+    String getDefaultImage() {
+        return defaultImage;
+    }
+
+    OwnerReference getOwner() {
+        return owner;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RenderEnvironment that = (RenderEnvironment) o;
+        return configMapExists == that.configMapExists &&
+                Objects.equals(defaultImage, that.defaultImage) &&
+                Objects.equals(owner, that.owner);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(configMapExists, defaultImage, owner);
+    }
+
+    @Override
+    public String toString() {
+        return "RenderEnvironment{" +
+                "configMapExists=" + configMapExists +
+                ", defaultImage=" + defaultImage +
+                ", owner=" + (owner == null ? null : owner.getUid()) +
+                '}';
+    }
+}
@@ -3,16 +3,18 @@ package io.radanalytics.operator.cluster;
 import io.radanalytics.types.SparkCluster;
 import io.radanalytics.types.Worker;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 public class RunningClusters {
 
     private final Map<String, SparkCluster> clusters;
     private final String namespace;
     public RunningClusters(String namespace) {
-        clusters = new HashMap<>();
+        clusters = new ConcurrentHashMap<>();
         this.namespace = namespace;
         MetricsHelper.runningClusters.labels(namespace).set(0);
     }
@@ -24,18 +26,45 @@ public class RunningClusters {
         clusters.put(ci.getName(), ci);
     }
 
+    /**
+     * Replaces the representation of an already running cluster without counting it as a newly started one.
+     *
+     * @param ci new representation of the cluster
+     */
+    public void replace(SparkCluster ci) {
+        MetricsHelper.workers.labels(ci.getName(), namespace).set(Optional.ofNullable(ci.getWorker()).orElse(new Worker()).getInstances());
+        clusters.put(ci.getName(), ci);
+    }
+
     public void delete(String name) {
-        if (clusters.containsKey(name)) {
+        if (clusters.remove(name) != null) {
             MetricsHelper.runningClusters.labels(namespace).dec();
             MetricsHelper.workers.labels(name, namespace).set(0);
-            clusters.remove(name);
         }
     }
 
+    /**
+     * Forgets the clusters that don't match the predicate, without deleting anything.
+     *
+     * @param keep predicate on the name of the cluster
+     */
+    public void retain(Predicate<String> keep) {
+        new ArrayList<>(clusters.keySet()).stream().filter(keep.negate()).forEach(this::delete);
+    }
+
     public SparkCluster getCluster(String name) {
         return this.clusters.get(name);
     }
 
+    /**
+     * Sets the gauges according to the clusters that are currently known.
+     */
+    public void updateMetrics() {
+        MetricsHelper.runningClusters.labels(namespace).set(clusters.size());
+        clusters.forEach((name, ci) -> MetricsHelper.workers.labels(name, namespace)
+                .set(Optional.ofNullable(ci.getWorker()).orElse(new Worker()).getInstances()));
+    }
+
     public void resetMetrics() {
         MetricsHelper.startedTotal.labels(namespace).set(0);
         clusters.forEach((c, foo) -> MetricsHelper.workers.labels(c, namespace).set(0));
@@ -0,0 +1,183 @@
+package io.radanalytics.operator.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.radanalytics.types.Master;
+import io.radanalytics.types.SparkCluster;
+import io.radanalytics.types.Worker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Structural difference between two versions of a spark cluster. The changed fields are collected as dot-separated
+ * paths (e.g. {@code worker.labels.team}) and the change as a whole is classified by the cheapest action that rolls
+ * it out, see {@link Type}. Unknown fields are treated as the most disruptive change.
+ */
+final class SparkClusterChange {
+
+    /**
+     * Kinds of the changes ordered from the cheapest one, a change of several kinds is handled as the most
+     * disruptive of them. Patching a replication controller doesn't touch its running pods, so the type also says
+     * which pods have to be restarted to pick the change up.
+     */
+    enum Type {
+        /**
+         * nothing the resources depend on has changed
+         */
+        NONE(false, false),
+        /**
+         * only the number of workers, the scale subresource is enough
+         */
+        SCALE(false, false),
+        /**
+         * only the labels, the resources and the running pods are relabeled without a restart
+         */
+        METADATA(false, false),
+        /**
+         * only the workers, their pods are restarted and the master with the running drivers stays
+         */
+        WORKER(false, true),
+        /**
+         * the spark configuration or the environment of all the pods, they are restarted, the services stay
+         */
+        CONFIG(true, true),
+        /**
+         * anything else, all the resources are applied and all the pods restarted
+         */
+        MASTER(true, true);
+
+        private final boolean restartsMaster;
+        private final boolean restartsWorkers;
+
+        Type(boolean restartsMaster, boolean restartsWorkers) {
+            this.restartsMaster = restartsMaster;
+            this.restartsWorkers = restartsWorkers;
+        }
+
+        boolean restartsMaster() {
+            return restartsMaster;
+        }
+
+        boolean restartsWorkers() {
+            return restartsWorkers;
+        }
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String WORKER = "worker";
+    private static final String WORKER_INSTANCES = "worker.instances";
+    private static final List<String> LABELS = Arrays.asList("labels", "master.labels", "worker.labels");
+    private static final List<String> CONFIG = Arrays.asList("sparkConfiguration", "sparkConfigurationMap", "env",
+            "downloadData", "mavenDependencies", "mavenRepositories");
+
+    private final Type type;
+    private final SortedSet<String> paths;
+
+    private SparkClusterChange(Type type, SortedSet<String> paths) {
+        this.type = type;
+        this.paths = Collections.unmodifiableSortedSet(paths);
+    }
+
+    /**
+     * @param existing the cluster as it's deployed
+     * @param desired  the new version of the cluster
+     * @return the change, none of the clusters is modified
+     */
+    static SparkClusterChange of(SparkCluster existing, SparkCluster desired) {
+        SortedSet<String> paths = new TreeSet<>();
+        diff("", MAPPER.valueToTree(normalized(existing)), MAPPER.valueToTree(normalized(desired)), paths);
+        Type type = Type.NONE;
+        for (String path : paths) {
+            Type pathType = classify(path);
+            if (pathType.compareTo(type) > 0) {
+                type = pathType;
+            }
+        }
+        return new SparkClusterChange(type, paths);
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    /**
+     * @return paths of the changed fields
+     */
+    SortedSet<String> getPaths() {
+        return paths;
+    }
+
+    /**
+     * A missing master or worker is deployed with the defaults, so it's the same as an empty one.
+     */
+    private static SparkCluster normalized(SparkCluster cluster) {
+        if (cluster.getMaster() != null && cluster.getWorker() != null) {
+            return cluster;
+        }
+        SparkCluster copy = new SparkCluster(cluster);
+        if (copy.getMaster() == null) {
+            copy.setMaster(new Master());
+        }
+        if (copy.getWorker() == null) {
+            copy.setWorker(new Worker());
+        }
+        return copy;
+    }
+
+    /**
+     * Objects are compared field by field, anything else (arrays included) as a whole. A missing field is the same as
+     * a null one.
+     */
+    private static void diff(String path, JsonNode existing, JsonNode desired, SortedSet<String> paths) {
+        if (isNull(existing) && isNull(desired)) {
+            return;
+        }
+        if (existing != null && existing.isObject() && desired != null && desired.isObject()) {
+            SortedSet<String> fields = new TreeSet<>();
+            existing.fieldNames().forEachRemaining(fields::add);
+            desired.fieldNames().forEachRemaining(fields::add);
+            for (String field : fields) {
+                diff(path.isEmpty() ? field : path + "." + field, existing.get(field), desired.get(field), paths);
+            }
+            return;
+        }
+        if (!Objects.equals(existing, desired)) {
+            paths.add(path);
+        }
+    }
+
+    private static boolean isNull(JsonNode node) {
+        return node == null || node.isNull();
+    }
+
+    private static Type classify(String path) {
+        if (WORKER_INSTANCES.equals(path)) {
+            return Type.SCALE;
+        }
+        if (LABELS.stream().anyMatch(root -> isUnder(path, root))) {
+            return Type.METADATA;
+        }
+        if (CONFIG.stream().anyMatch(root -> isUnder(path, root))) {
+            return Type.CONFIG;
+        }
+        if (isUnder(path, WORKER)) {
+            return Type.WORKER;
+        }
+        return Type.MASTER;
+    }
+
+    private static boolean isUnder(String path, String root) {
+        return path.equals(root) || path.startsWith(root + ".");
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + paths;
+    }
+}
@@ -1,19 +1,28 @@
 package io.radanalytics.operator.cluster;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Functions;
-import com.google.common.collect.Sets;
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
 import io.fabric8.kubernetes.api.model.ReplicationController;
 import io.fabric8.kubernetes.api.model.ReplicationControllerList;
-import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.FilterWatchListMultiDeletable;
 import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.RollableScalableResource;
 import io.radanalytics.operator.Constants;
 import io.radanalytics.operator.common.AbstractOperator;
+import io.radanalytics.operator.common.ChangeLog;
 import io.radanalytics.operator.common.Operator;
+import io.radanalytics.operator.common.OperatorExecutors;
+import io.radanalytics.operator.common.ReconcileContext;
+import io.radanalytics.operator.common.ResourceApplier;
+import io.radanalytics.operator.common.ResourceCache;
+import io.radanalytics.operator.common.ResourceInformer;
+import io.radanalytics.operator.resource.OwnerReferenceHelper;
 import io.radanalytics.types.Master;
 import io.radanalytics.types.SparkCluster;
 import io.radanalytics.types.Worker;
@@ -21,9 +30,9 @@ import org.slf4j.Logger;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 
 import static io.radanalytics.operator.common.AnsiColors.*;
@@ -37,56 +46,127 @@ import static io.radanalytics.operator.resource.LabelsHelper.OPERATOR_RC_TYPE_LA
         additionalPrinterColumnTypes = {"string", "date"})
 public class SparkClusterOperator extends AbstractOperator<SparkCluster> {
 
+
     @Inject
     private Logger log;
 
-    private MetricsHelper metrics;
-    private RunningClusters clusters;
-    private KubernetesSparkClusterDeployer deployer;
+    // running clusters for each of the watched namespaces
+    private final Map<String, RunningClusters> clusters = new ConcurrentHashMap<>();
+    private volatile KubernetesSparkClusterDeployer deployer;
+    private ResourceApplier applier;
+    private ResourceInformer<ReplicationController> workerRcInformer;
+    // config maps referenced by the clusters (sparkConfigurationMap) are read from these informers when rendering,
+    // one for each watched namespace
+    private final List<ResourceInformer<ConfigMap>> configMapInformers = new CopyOnWriteArrayList<>();
+    // namespace/name of the clusters that should be rendered again because their config map has changed
+    private final Set<String> configMapChanges = ConcurrentHashMap.newKeySet();
 
     public SparkClusterOperator() {
 
     }
 
     private void updateStatus(SparkCluster cluster, String state) {
-	    for (int i=0; i<3; i++) {
-            try {
-	            setCRStatus(state, cluster.getNamespace(), cluster.getName() );
-		        break;
-	        }
-	        catch(Exception e) {
-	            log.warn("failed to update status {} for {} in {}", state, cluster.getName(), cluster.getNamespace());
-                try {Thread.sleep(500);} catch(Exception t) {}
-	        }
-	    }
+        // written in the background, see StatusWriter
+        setCRStatus(state, cluster.getNamespace(), cluster.getName());
     }
 
     @Override
     protected void onInit() {
         log.info("{} operator default spark image = {}", this.entityName, Constants.getDefaultSparkImage());
+        applier = new ResourceApplier(prefix);
+        if (workerRcInformer != null) {
+            workerRcInformer.close();
+        }
+        MixedOperation<ReplicationController, ReplicationControllerList, RollableScalableResource<ReplicationController>> aux1 =
+                client.replicationControllers();
+        FilterWatchListMultiDeletable<ReplicationController, ReplicationControllerList> aux2 =
+                "*".equals(namespace) ? aux1.inAnyNamespace() : aux1.inNamespace(namespace);
+        Map<String, String> labels = new HashMap<>(2);
+        labels.put(prefix + OPERATOR_KIND_LABEL, entityName);
+        labels.put(prefix + OPERATOR_RC_TYPE_LABEL, "worker");
+        workerRcInformer = informer("ReplicationController", aux2.withLabels(labels));
+        // scaled or deleted worker RCs are fixed by the next incremental reconciliation
+        workerRcInformer.addListener((action, rc) -> changes.mark(rc.getMetadata().getNamespace(), clusterName(rc)));
+        workerRcInformer.start();
+
+        configMapInformers.forEach(ResourceInformer::close);
+        configMapInformers.clear();
+        ConfigMapLookup configMaps = new ConfigMapLookup();
+        for (String ns : getWatchedNamespaces()) {
+            // scoped to the watched namespace, only "*" needs the cluster-wide watch
+            ResourceInformer<ConfigMap> informer = informer("ConfigMap", ns,
+                    "*".equals(ns) ? client.configMaps().inAnyNamespace() : client.configMaps().inNamespace(ns));
+            informer.addListener((action, cm) -> onConfigMapChange(cm));
+            informer.start();
+            configMapInformers.add(informer);
+            configMaps.add(ns, informer.getCache());
+        }
+        deployer = new KubernetesSparkClusterDeployer(entityName, prefix, namespace, configMaps);
+    }
+
+    @Override
+    public boolean hasSynced() {
+        return super.hasSynced() && workerRcInformer != null && workerRcInformer.hasSynced()
+                && !configMapInformers.isEmpty() && configMapInformers.stream().allMatch(ResourceInformer::hasSynced);
+    }
+
+    /**
+     * Whether the config map exists changes the rendered resources (volumes and probe delays), so the clusters that
+     * use it are rendered again by the next incremental reconciliation. If only its content has changed, the
+     * rendered resources are the same and their writes are skipped.
+     */
+    private void onConfigMapChange(ConfigMap cm) {
+        if (!hasSynced()) {
+            // the initial list, the clusters are rendered with the full cache anyway
+            return;
+        }
+        String ns = cm.getMetadata().getNamespace();
+        String cmName = cm.getMetadata().getName();
+        for (SparkCluster cluster : getDesiredSet(context(ns))) {
+            if (cmName.equals(InitContainersHelper.getExpectedCMName(cluster)) && isOwned(ns, cluster.getName())) {
+                log.debug("config map {} of cluster {} has changed", cmName, cluster.getName());
+                configMapChanges.add(ResourceCache.key(ns, cluster.getName()));
+                changes.mark(ns, cluster.getName());
+            }
+        }
     }
 
     @Override
-    protected void onAdd(SparkCluster cluster) {
-        KubernetesResourceList list = getDeployer().getResourceList(cluster);
-        client.resourceList(list).inNamespace(namespace).createOrReplace();
-        getClusters().put(cluster);
+    protected void onAdd(SparkCluster cluster, ReconcileContext context) {
+        String ns = context.getNamespace();
+        KubernetesResourceList list = getDeployer().getResourceList(cluster, getOwnerReference(ns, cluster.getName()));
+        // unchanged objects (e.g. after restart) are not written again
+        applier.apply(context.getClient(), ns, list);
+        getClusters(ns).put(cluster);
         updateStatus(cluster, "ready");
     }
 
     @Override
-    protected void onDelete(SparkCluster cluster) {
+    protected void onDelete(SparkCluster cluster, ReconcileContext context) {
+        String ns = context.getNamespace();
+        KubernetesClient client = context.getClient();
         String name = cluster.getName();
         updateStatus(cluster, "deleted");
-        client.services().inNamespace(namespace).withLabels(getDeployer().getDefaultLabels(name)).delete();
-        client.replicationControllers().inNamespace(namespace).withLabels(getDeployer().getDefaultLabels(name)).delete();
-        client.pods().inNamespace(namespace).withLabels(getDeployer().getDefaultLabels(name)).delete();
-        client.persistentVolumeClaims().inNamespace(namespace).withLabels(getDeployer().getDefaultLabels(name)).delete();
-        getClusters().delete(name);
+        getClusters(ns).delete(name);
+        ReplicationController workerRc = workerRcInformer.getCache().get(ns, name + "-w");
+        if (isCrd && (workerRc == null || OwnerReferenceHelper.hasController(workerRc))) {
+            // owned by the custom resource, the garbage collector deletes everything in the background
+            log.debug("resources of cluster {} are garbage collected", name);
+            return;
+        }
+        // config map mode or resources created before the owner references were set
+        client.services().inNamespace(ns).withLabels(getDeployer().getDefaultLabels(name)).delete();
+        client.replicationControllers().inNamespace(ns).withLabels(getDeployer().getDefaultLabels(name)).delete();
+        client.pods().inNamespace(ns).withLabels(getDeployer().getDefaultLabels(name)).delete();
+        client.persistentVolumeClaims().inNamespace(ns).withLabels(getDeployer().getDefaultLabels(name)).delete();
     }
 
     @Override
-    protected void onModify(SparkCluster newCluster) {
+    protected void onModify(SparkCluster cluster, ReconcileContext context) {
+        String ns = context.getNamespace();
+        KubernetesClient client = context.getClient();
+        // the instance is shared with the conversion cache, work on a copy
+        SparkCluster newCluster = new SparkCluster(cluster);
         String name = newCluster.getName();
 
         // if an empty master/worker was passed
@@ -96,171 +176,338 @@ public class SparkClusterOperator extends AbstractOperator<SparkCluster> {
         if (null == newCluster.getWorker()) {
             newCluster.setWorker(new Worker());
         }
-        int newWorkers = Optional.ofNullable(newCluster.getWorker()).orElse(new Worker()).getInstances();
 
-        SparkCluster existingCluster = getClusters().getCluster(name);
+        ReplicationController workerRc = workerRcInformer.getCache().get(ns, name + "-w");
+        SparkCluster existingCluster = getClusters(ns).getCluster(name);
+        if (null == existingCluster && workerRc != null) {
+            // after (re)start or a cluster taken over from another replica, the running one is the desired one
+            getClusters(ns).put(newCluster);
+            existingCluster = newCluster;
+        }
         if (null == existingCluster) {
             log.error("something went wrong, unable to scale existing cluster. Perhaps it wasn't deployed properly.");
             updateStatus(newCluster, "error, unable to scale existing cluster");
             return;
         }
 
-        if (isOnlyScale(existingCluster, newCluster)) {
-            log.info("{}scaling{} from  {}{}{} worker replicas to  {}{}{}", re(), xx(), ye(),
-                    existingCluster.getWorker().getInstances(), xx(), ye(), newWorkers, xx());
-            client.replicationControllers().inNamespace(namespace).withName(name + "-w").scale(newWorkers);
+        String key = ResourceCache.key(ns, name);
+        boolean configMapChanged = configMapChanges.remove(key);
+        try {
+            modify(client, ns, existingCluster, newCluster, workerRc, configMapChanged);
+        } catch (RuntimeException e) {
+            if (configMapChanged) {
+                // rendered again when the modification is retried
+                configMapChanges.add(key);
+            }
+            throw e;
+        }
+    }
 
-            // update metrics
-            MetricsHelper.workers.labels(newCluster.getName(), namespace).set(newCluster.getWorker().getInstances());
-            updateStatus(newCluster, "scaled");
+    private void modify(KubernetesClient client, String ns, SparkCluster existingCluster, SparkCluster newCluster,
+                        ReplicationController workerRc, boolean configMapChanged) {
+        String name = newCluster.getName();
+        int newWorkers = newCluster.getWorker().getInstances();
+        SparkClusterChange change = SparkClusterChange.of(existingCluster, newCluster);
+        MetricsHelper.clusterChanges.labels(change.getType().name().toLowerCase(), ns).inc();
+        switch (change.getType()) {
+            case NONE:
+            case SCALE:
+                if (configMapChanged) {
+                    log.info("rendering cluster {} again, its config map has changed", name);
+                    // the worker replicas are rendered too, so this also scales the cluster if needed
+                    applier.apply(client, ns, getDeployer().getResourceList(newCluster, getOwnerReference(ns, name)));
+                    getClusters(ns).replace(newCluster);
+                    updateStatus(newCluster, "ready");
+                    return;
+                }
+                // the worker replication controller may have been scaled by someone else
+                int actualWorkers = workerRc == null ? existingCluster.getWorker().getInstances()
+                        : workerRc.getSpec().getReplicas();
+                if (actualWorkers == newWorkers) {
+                    log.debug("cluster {} hasn't changed", name);
+                    getClusters(ns).replace(newCluster);
+                    return;
+                }
+                log.info("{}scaling{} from  {}{}{} worker replicas to  {}{}{}", re(), xx(), ye(),
+                        actualWorkers, xx(), ye(), newWorkers, xx());
+                // only the scale subresource, the replication controller itself is not sent
+                applier.scaleReplicationController(client, ns, name + "-w", newWorkers);
+
+                // already running, so it's not counted as a started cluster, only the workers gauge is set
+                getClusters(ns).replace(newCluster);
+                updateStatus(newCluster, "scaled");
+                return;
+            default:
+                log.info("{}updating{} cluster  {}{}{} ({})", re(), xx(), ye(), name, xx(), change);
+                rollOut(client, ns, existingCluster, newCluster, change.getType());
+                getClusters(ns).replace(newCluster);
+                updateStatus(newCluster, "ready");
+        }
+    }
+
+    /**
+     * Applies the rendered resources and restarts only the pods the change needs. The replication controllers are
+     * patched (see {@link ResourceApplier}), which doesn't touch their running pods.
+     */
+    private void rollOut(KubernetesClient client, String ns, SparkCluster existingCluster, SparkCluster newCluster,
+                         SparkClusterChange.Type type) {
+        String name = newCluster.getName();
+        KubernetesResourceList<? extends HasMetadata> list = getDeployer().getResourceList(newCluster,
+                getOwnerReference(ns, name));
+        Map<String, ReplicationController> rcs = replicationControllers(list);
+        if (type == SparkClusterChange.Type.CONFIG) {
+            // the services and the claim don't depend on the configuration
+            rcs.values().forEach(rc -> applier.apply(client, ns, rc));
         } else {
-            log.info("{}recreating{} cluster  {}{}{}", re(), xx(), ye(), existingCluster.getName(), xx());
-            KubernetesResourceList list = getDeployer().getResourceList(newCluster);
-            try {
-                client.resourceList(list).inNamespace(namespace).createOrReplace();
-            } catch (Exception e) {
-                log.warn("{}deleting and creating{} cluster  {}{}{}", re(), xx(), ye(), existingCluster.getName(), xx());
-                client.resourceList(list).inNamespace(namespace).delete();
-                client.resourceList(list).inNamespace(namespace).createOrReplace();
+            // patches only what has changed, an object that can't be patched is recreated on its own
+            applier.apply(client, ns, list);
+        }
+        if (type == SparkClusterChange.Type.METADATA) {
+            KubernetesResourceList<? extends HasMetadata> previous = getDeployer().getResourceList(existingCluster,
+                    getOwnerReference(ns, name));
+            relabelPods(client, ns, replicationControllers(previous), rcs);
+        }
+        // the master goes first, so the new workers register with the new master
+        if (type.restartsMaster()) {
+            restartPods(client, ns, rcs.get(name + "-m"));
+        }
+        if (type.restartsWorkers()) {
+            restartPods(client, ns, rcs.get(name + "-w"));
+        }
+    }
+
+    /**
+     * Sets the labels of the new pod templates on the running pods, the labels removed from the templates are removed
+     * from the pods too.
+     */
+    private void relabelPods(KubernetesClient client, String ns, Map<String, ReplicationController> previous,
+                             Map<String, ReplicationController> desired) {
+        for (ReplicationController rc : desired.values()) {
+            Map<String, String> labels = podLabels(rc);
+            Set<String> removed = new HashSet<>(podLabels(previous.get(rc.getMetadata().getName())).keySet());
+            removed.removeAll(labels.keySet());
+            for (Pod pod : client.pods().inNamespace(ns).withLabels(rc.getSpec().getSelector()).list().getItems()) {
+                Map<String, String> current = Optional.ofNullable(pod.getMetadata().getLabels())
+                        .orElse(Collections.emptyMap());
+                Map<String, String> relabeled = new HashMap<>(current);
+                relabeled.keySet().removeAll(removed);
+                relabeled.putAll(labels);
+                if (!relabeled.equals(current)) {
+                    client.pods().inNamespace(ns).withName(pod.getMetadata().getName())
+                            .edit(p -> new PodBuilder(p).editMetadata().withLabels(relabeled).endMetadata().build());
+                }
             }
-            getClusters().put(newCluster);
-            updateStatus(newCluster, "ready");
         }
     }
 
-    @Override
-    public void fullReconciliation() {
-//        1. get all the cm/cr and call it desiredSet
-//        2. get all the clusters and call it actualSet (and update the this.clusters)
-//        3. desiredSet - actualSet = toBeCreated
-//        4. actualSet - desiredSet = toBeDeleted
-//        5. modify / scale
+    private void restartPods(KubernetesClient client, String ns, ReplicationController rc) {
+        if (rc != null) {
+            log.info("restarting the pods of {}", rc.getMetadata().getName());
+            // the replication controller creates them again from the new template
+            client.pods().inNamespace(ns).withLabels(rc.getSpec().getSelector()).delete();
+        }
+    }
+
+    private static Map<String, ReplicationController> replicationControllers(
+            KubernetesResourceList<? extends HasMetadata> list) {
+        return list.getItems().stream()
+                .filter(ReplicationController.class::isInstance)
+                .map(ReplicationController.class::cast)
+                .collect(Collectors.toMap(rc -> rc.getMetadata().getName(), Functions.identity()));
+    }
+
+    private static Map<String, String> podLabels(ReplicationController rc) {
+        if (rc == null || rc.getSpec().getTemplate().getMetadata().getLabels() == null) {
+            return Collections.emptyMap();
+        }
+        return rc.getSpec().getTemplate().getMetadata().getLabels();
+    }
 
-        if ("*".equals(namespace)) {
-            log.info("Skipping full reconciliation for namespace '*' (not supported)");
+    @Override
+    public void fullReconciliation(ReconcileContext context) {
+        final String ns = context.getNamespace();
+        Set<SparkCluster> desiredSet = super.getDesiredSet(context);
+        // with sharding, the clusters of the other replicas must be left alone
+        List<ReplicationController> workerRcs = workerRcInformer.getCache().list(ns).stream()
+                .filter(rc -> isOwned(rc.getMetadata().getNamespace(), clusterName(rc)))
+                .collect(Collectors.toList());
+        if (!"*".equals(ns)) {
+            reconcile(context, desiredSet, workerRcs);
             return;
         }
-        log.info("Running full reconciliation for namespace {} and kind {}..", namespace, entityName);
-        final AtomicBoolean change = new AtomicBoolean(false);
-        Set<SparkCluster> desiredSet = super.getDesiredSet();
-        Map<String, SparkCluster> desiredMap = desiredSet.stream().collect(Collectors.toMap(SparkCluster::getName, Functions.identity()));
-        Map<String, Integer> actual = getActual();
 
-        log.debug("desired set: {}", desiredSet);
-        log.debug("actual: {}", actual);
+        // all the namespaces: group both sides by namespace and diff each group on its own
+        Map<String, List<SparkCluster>> desiredByNs = desiredSet.stream()
+                .collect(Collectors.groupingBy(SparkCluster::getNamespace));
+        Map<String, List<ReplicationController>> actualByNs = workerRcs.stream()
+                .collect(Collectors.groupingBy(rc -> rc.getMetadata().getNamespace()));
+        Set<String> namespaces = new HashSet<>(desiredByNs.keySet());
+        namespaces.addAll(actualByNs.keySet());
+        log.info("Running full reconciliation of {} namespace(s) for kind {}..", namespaces.size(), entityName);
+        OperatorExecutors.get().forEachParallel(namespaces, getFullReconciliationParallelism(), n -> {
+            try {
+                reconcile(context(n), desiredByNs.getOrDefault(n, Collections.emptyList()),
+                        actualByNs.getOrDefault(n, Collections.emptyList()));
+            } catch (RuntimeException e) {
+                // the other namespaces are reconciled anyway, this one is retried by the next reconciliation
+                log.warn("full reconciliation of namespace {} failed: {}", n, e.getMessage(), e);
+            }
+        });
+    }
 
-        Sets.SetView<String> toBeCreated = Sets.difference(desiredMap.keySet(), actual.keySet());
-        Sets.SetView<String> toBeDeleted = Sets.difference(actual.keySet(), desiredMap.keySet());
+    @Override
+    public boolean isIncremental() {
+        return true;
+    }
 
-        if (!toBeCreated.isEmpty()) {
-            log.info("toBeCreated: {}", toBeCreated);
-            change.set(true);
+    /**
+     * Diffs only the clusters whose custom resource (or config map) or worker replication controller has changed
+     * since the last reconciliation, so the cost depends on the number of changes, not on the number of clusters.
+     * The clusters that need a change are enqueued for the reconcile workers, they are not handled here.
+     */
+    @Override
+    public void reconcileChanges(ReconcileContext context) {
+        Set<String> keys = changes.drain(context.getNamespace());
+        if (keys.isEmpty()) {
+            return;
         }
-        if (!toBeDeleted.isEmpty()) {
-            log.info("toBeDeleted: {}", toBeDeleted);
-            change.set(true);
+        log.debug("Reconciling {} changed {}(s)", keys.size(), entityName);
+        List<String> failed = new ArrayList<>();
+        for (String key : keys) {
+            String ns = ChangeLog.namespace(key);
+            String name = ChangeLog.name(key);
+            if (!isOwned(ns, name)) {
+                continue;
+            }
+            ReconcileContext nsContext = ns.equals(context.getNamespace()) ? context : context(ns);
+            ReplicationController rc = workerRcInformer.getCache().get(ns, name + "-w");
+            Integer actualWorkers = rc == null || !name.equals(clusterName(rc)) ? null : rc.getSpec().getReplicas();
+            try {
+                reconcileCluster(nsContext, getClusters(ns), name, getDesired(nsContext, name), actualWorkers);
+            } catch (RuntimeException e) {
+                log.warn("reconciliation of {} {} failed, it will be retried: {}", entityName, key, e.getMessage());
+                failed.add(key);
+            }
         }
+        changes.restore(failed);
+    }
 
-        // add new
-        toBeCreated.forEach(cluster -> {
-            log.info("creating cluster {}", cluster);
-            onAdd(desiredMap.get(cluster));
-        });
+    private void reconcile(ReconcileContext context, Collection<SparkCluster> desiredSet,
+                           List<ReplicationController> workerRcs) {
+        // everything is diffed now, the changes logged so far are covered unless the reconciliation fails
+        Set<String> covered = changes.drain(context.getNamespace());
+        try {
+            reconcileNamespace(context, desiredSet, workerRcs);
+        } catch (RuntimeException e) {
+            changes.restore(covered);
+            throw e;
+        }
+    }
 
-        // delete old
-        toBeDeleted.forEach(cluster -> {
-            SparkCluster c = new SparkCluster();
-            c.setName(cluster);
-            log.info("deleting cluster {}", cluster);
-            onDelete(c);
-        });
+    private void reconcileNamespace(ReconcileContext context, Collection<SparkCluster> desiredSet,
+                                    List<ReplicationController> workerRcs) {
+//        1. get all the cm/cr and call it desiredSet
+//        2. get all the clusters and call it actualSet (and update the this.clusters)
+//        3. create the desired clusters that are missing, delete the running ones that are not desired
+//        4. modify / scale
+
+        final String ns = context.getNamespace();
+        log.info("Running full reconciliation for namespace {} and kind {}..", ns, entityName);
+        final RunningClusters clusters = getClusters(ns);
+        // clusters taken over by another replica
+        clusters.retain(name -> isOwned(ns, name));
+        Map<String, SparkCluster> desiredMap = desiredSet.stream().collect(Collectors.toMap(SparkCluster::getName, Functions.identity()));
+        Map<String, Integer> actual = getActual(workerRcs);
 
-        // scale
-        desiredSet.forEach(dCluster -> {
-            int desiredWorkers = Optional.ofNullable(dCluster.getWorker()).orElse(new Worker()).getInstances();
-            Integer actualWorkers = actual.get(dCluster.getName());
-            if (actualWorkers != null && desiredWorkers != actualWorkers) {
-                change.set(true);
-                // update the internal representation with the actual # of workers and call onModify
-                if (getClusters().getCluster(dCluster.getName()) == null) {
-                    // deep copy via json -> room for optimization
-                    ObjectMapper om = new ObjectMapper();
-                    try {
-                        SparkCluster actualCluster = om.readValue(om.writeValueAsString(dCluster), SparkCluster.class);
-                        Optional.ofNullable(actualCluster.getWorker()).ifPresent(w -> w.setInstances(actualWorkers));
-                        getClusters().put(actualCluster);
-                    } catch (IOException e) {
-                        log.warn(e.getMessage());
-                        e.printStackTrace();
-                        return;
-                    }
-                } else {
-                    Optional.ofNullable(getClusters().getCluster(dCluster.getName())).map(SparkCluster::getWorker)
-                            .ifPresent(worker -> worker.setInstances(actualWorkers));
-                }
-                log.info("scaling cluster {}", dCluster.getName());
-                onModify(dCluster);
-            }
-        });
+        log.debug("desired set: {}", desiredSet);
+        log.debug("actual: {}", actual);
 
         // first reconciliation after (re)start -> update the clusters instance
         if (!fullReconciliationRun) {
-            getClusters().resetMetrics();
-            desiredMap.entrySet().forEach(e -> getClusters().put(e.getValue()));
+            clusters.resetMetrics();
         }
 
-        if (!change.get()) {
+        Set<String> names = new HashSet<>(desiredMap.keySet());
+        names.addAll(actual.keySet());
+        boolean change = false;
+        for (String name : names) {
+            try {
+                change |= reconcileCluster(context, clusters, name, desiredMap.get(name), actual.get(name));
+            } catch (RuntimeException e) {
+                // one broken cluster must not stop the others, it's retried by the incremental reconciliation
+                log.warn("reconciliation of {} {} failed, it will be retried: {}", entityName, name, e.getMessage());
+                changes.mark(ns, name);
+            }
+        }
+
+        // the gauges may have drifted, e.g. after failed handlers
+        clusters.updateMetrics();
+
+        if (!change) {
             log.info("no change was detected during the reconciliation");
         }
-        metrics.reconciliationsTotal.labels(namespace).inc();
+        MetricsHelper.reconciliationsTotal.labels(ns).inc();
     }
 
-    private Map<String, Integer> getActual() {
-        MixedOperation<ReplicationController, ReplicationControllerList, RollableScalableResource<ReplicationController>> aux1 =
-                client.replicationControllers();
-        FilterWatchListMultiDeletable<ReplicationController, ReplicationControllerList> aux2 =
-                "*".equals(namespace) ? aux1.inAnyNamespace() : aux1.inNamespace(namespace);
-        Map<String, String> labels =new HashMap<>(2);
-        labels.put(prefix + OPERATOR_KIND_LABEL, entityName);
-        labels.put(prefix + OPERATOR_RC_TYPE_LABEL, "worker");
-        List<ReplicationController> workerRcs = aux2.withLabels(labels).list().getItems();
+    /**
+     * Finds out what one cluster needs to get to the desired state and hands it to the reconcile workers, see
+     * {@link #reconcileEntity}, so it's never handled concurrently with the watch events for the same cluster.
+     *
+     * @param context       context of the cluster's namespace
+     * @param clusters      running clusters in the namespace
+     * @param name          name of the cluster
+     * @param desired       desired state or null if the cluster should not exist
+     * @param actualWorkers replicas of the worker replication controller or null if it doesn't exist
+     * @return true if something had to be changed
+     */
+    private boolean reconcileCluster(ReconcileContext context, RunningClusters clusters, String name,
+                                     SparkCluster desired, Integer actualWorkers) {
+        if (desired == null) {
+            if (actualWorkers == null) {
+                clusters.delete(name);
+                return false;
+            }
+            SparkCluster c = new SparkCluster();
+            c.setName(name);
+            c.setNamespace(context.getNamespace());
+            log.info("deleting cluster {}", name);
+            reconcileEntity(Watcher.Action.DELETED, c, context);
+            return true;
+        }
+        if (actualWorkers == null) {
+            log.info("creating cluster {}", name);
+            reconcileEntity(Watcher.Action.ADDED, desired, context);
+            return true;
+        }
+        int desiredWorkers = Optional.ofNullable(desired.getWorker()).orElse(new Worker()).getInstances();
+        String key = ResourceCache.key(context.getNamespace(), name);
+        // a cluster that isn't running yet (after restart) is registered by onModify
+        if (desiredWorkers == actualWorkers && clusters.getCluster(name) != null && !configMapChanges.contains(key)) {
+            return false;
+        }
+        log.info("updating cluster {}", name);
+        reconcileEntity(Watcher.Action.MODIFIED, desired, context);
+        return true;
+    }
+
+    private Map<String, Integer> getActual(List<ReplicationController> workerRcs) {
         Map<String, Integer> retMap = workerRcs
                 .stream()
-                .collect(Collectors.toMap(rc -> rc.getMetadata().getLabels().get(prefix + entityName),
-                        rc -> rc.getSpec().getReplicas()));
+                .collect(Collectors.toMap(this::clusterName, rc -> rc.getSpec().getReplicas()));
         return retMap;
     }
 
-    public KubernetesSparkClusterDeployer getDeployer() {
-        if (this.deployer == null) {
-            this.deployer = new KubernetesSparkClusterDeployer(client, entityName, prefix, namespace);
-        }
-        return deployer;
+    private String clusterName(ReplicationController rc) {
+        Map<String, String> labels = rc.getMetadata().getLabels();
+        return labels == null ? null : labels.get(prefix + entityName);
     }
 
-    private RunningClusters getClusters() {
-        if (null == clusters) {
-            clusters = new RunningClusters(namespace);
-        }
-        return clusters;
+    public KubernetesSparkClusterDeployer getDeployer() {
+        // created in onInit() together with the config map informer
+        return deployer;
     }
 
-
-    /**
-     * This method verifies if any two instances of SparkCluster are the same ones up to the number of
-     * workers. This way we can call the scale instead of recreating the whole cluster.
-     *
-     * @param oldC the first instance of SparkCluster we are comparing
-     * @param newC the second instance of SparkCluster we are comparing
-     * @return true if both instances represent the same spark cluster but differs only in number of workers (it is safe
-     * to call scale method)
-     */
-    private boolean isOnlyScale(SparkCluster oldC, SparkCluster newC) {
-        boolean retVal = oldC.getWorker().getInstances() != newC.getWorker().getInstances();
-        int backup = Optional.ofNullable(newC.getWorker()).orElse(new Worker()).getInstances();
-        newC.getWorker().setInstances(oldC.getWorker().getInstances());
-        retVal &= oldC.equals(newC);
-        newC.getWorker().setInstances(backup);
-        return retVal;
+    private RunningClusters getClusters(String ns) {
+        return clusters.computeIfAbsent(ns, RunningClusters::new);
     }
 }
@@ -1,9 +1,15 @@
 package io.radanalytics.operator.historyServer;
 
 import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.openshift.client.DefaultOpenShiftClient;
 import io.radanalytics.operator.common.AbstractOperator;
 import io.radanalytics.operator.common.Operator;
+import io.radanalytics.operator.common.ReconcileContext;
+import io.radanalytics.operator.common.ResourceApplier;
+import io.radanalytics.operator.common.ResourceCache;
+import io.radanalytics.operator.resource.OwnerReferenceHelper;
 import io.radanalytics.types.SparkHistoryServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,11 +17,9 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
-import java.lang.Thread;
 import java.util.Map;
-import java.util.HashMap;
 import java.util.Optional;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Singleton
 @Operator(forKind = SparkHistoryServer.class, prefix = "radanalytics.io")
@@ -24,85 +28,106 @@ public class HistoryServerOperator extends AbstractOperator<SparkHistoryServer>
     @Inject
     private Logger log;
     private KubernetesHistoryServerDeployer deployer;
-    private boolean osClient = false;
-    private Map<String, KubernetesResourceList> cache = new WeakHashMap<>();
+    private ResourceApplier applier;
+    // created lazily for the resources that are specific to openshift (Route)
+    private volatile KubernetesClient osClient;
+    // both keyed by namespace/name
+    private final Map<String, KubernetesResourceList> cache = new ConcurrentHashMap<>();
     private Map<String, SparkHistoryServer> hss;
 
     public HistoryServerOperator() {
-        this.hss = new HashMap<>();
+        this.hss = new ConcurrentHashMap<>();
     }
 
-    private void put(SparkHistoryServer hs) {
-        hss.put(hs.getName(), hs);
+    private void put(SparkHistoryServer hs, String ns) {
+        hss.put(ResourceCache.key(ns, hs.getName()), hs);
     }
 
-    private void delete(String name) {
-        if (hss.containsKey(name)) {
-            hss.remove(name);
-        }
+    private void delete(String name, String ns) {
+        hss.remove(ResourceCache.key(ns, name));
+    }
+
+    private SparkHistoryServer getHS(String name, String ns) {
+        return this.hss.get(ResourceCache.key(ns, name));
     }
 
-    private SparkHistoryServer getHS(String name) {
-        return this.hss.get(name);
+    private KubernetesClient client(ReconcileContext context) {
+        KubernetesClient os = osClient;
+        return os != null ? os : context.getClient();
+    }
+
+    private synchronized KubernetesClient openShiftClient() {
+        if (osClient == null) {
+            osClient = new DefaultOpenShiftClient();
+        }
+        return osClient;
     }
 
-   private void updateStatus(SparkHistoryServer hs, String state) {
-        for (int i=0; i<3; i++) {
-            try {
-	            setCRStatus(state, hs.getNamespace(), hs.getName() );
-		        break;
-	        }
-	        catch(Exception e) {
-	            log.warn("failed to update status {} for {} in {}", state, hs.getName(), hs.getNamespace());
-                try {Thread.sleep(500);} catch(Exception t) {}
-	        }
-	    }
+    private void updateStatus(SparkHistoryServer hs, String state) {
+        // written in the background, see StatusWriter
+        setCRStatus(state, hs.getNamespace(), hs.getName());
     }
 
     @Override
     protected void onInit() {
         this.deployer = new KubernetesHistoryServerDeployer(entityName, prefix);
+        this.applier = new ResourceApplier(prefix);
     }
 
     @Override
-    protected void onAdd(SparkHistoryServer hs) {
+    protected void onAdd(SparkHistoryServer hs, ReconcileContext context) {
         log.info("Spark history server added");
 
-        KubernetesResourceList list = deployer.getResourceList(hs, namespace, isOpenshift);
-        if (isOpenshift && hs.getExpose() && !osClient) {
-
-            // we will create openshift specific resource (Route)
-            this.client = new DefaultOpenShiftClient();
-            osClient = true;
-        }
-        client.resourceList(list).inNamespace(namespace).createOrReplace();
-        cache.put(hs.getName(), list);
+        String ns = context.getNamespace();
+        KubernetesResourceList list = deployer.getResourceList(hs, ns, isOpenshift, getOwnerReference(ns, hs.getName()));
+        // we will create openshift specific resource (Route)
+        KubernetesClient client = isOpenshift && hs.getExpose() ? openShiftClient() : client(context);
+        applier.apply(client, ns, list);
+        cache.put(ResourceCache.key(ns, hs.getName()), list);
         updateStatus(hs, "ready");
-        put(hs);
+        put(hs, ns);
     }
 
     @Override
-    protected void onModify(SparkHistoryServer newHs) {
+    protected void onModify(SparkHistoryServer newHs, ReconcileContext context) {
 
         // TODO This comparison works to rule out a change in status because
         // we added the status block in the AbstractOperator universally,
         // ie it is not actually included in the SparkHistoryServer type
         // definition generated from json. If that ever changes, then
         // this comparison will have to be a little smarter.
-        SparkHistoryServer existingHs = getHS(newHs.getName());
+        SparkHistoryServer existingHs = getHS(newHs.getName(), context.getNamespace());
         if (null == existingHs || !newHs.equals(existingHs)) {
-            super.onModify(newHs);
+            // the custom resource still exists, so its resources have to be deleted explicitly
+            deleteResources(newHs, context);
+            onAdd(newHs, context);
         }
     }
 
     @Override
-    protected void onDelete(SparkHistoryServer hs) {
+    protected void onDelete(SparkHistoryServer hs, ReconcileContext context) {
         log.info("Spark history server removed");
+        String ns = context.getNamespace();
         String name = hs.getName();
         updateStatus(hs, "deleted");
-        delete(name);
-        KubernetesResourceList list = Optional.ofNullable(cache.get(name)).orElse(deployer.getResourceList(hs, namespace, isOpenshift));
-        client.resourceList(list).inNamespace(namespace).delete();
-        cache.remove(name);
+        delete(name, ns);
+        if (isCrd) {
+            // decided from the live deployment, the cache is empty after a restart
+            Deployment deployment = context.getClient().apps().deployments().inNamespace(ns).withName(name).get();
+            if (deployment == null || OwnerReferenceHelper.hasController(deployment)) {
+                // owned by the custom resource, the garbage collector deletes everything in the background
+                cache.remove(ResourceCache.key(ns, name));
+                return;
+            }
+        }
+        deleteResources(hs, context);
+    }
+
+    private void deleteResources(SparkHistoryServer hs, ReconcileContext context) {
+        String ns = context.getNamespace();
+        KubernetesResourceList list = Optional.ofNullable(cache.get(ResourceCache.key(ns, hs.getName())))
+                .orElse(deployer.getResourceList(hs, ns, isOpenshift, null));
+        client(context).resourceList(list).inNamespace(ns).delete();
+        cache.remove(ResourceCache.key(ns, hs.getName()));
     }
 }
@@ -11,6 +11,9 @@ import io.fabric8.kubernetes.api.model.extensions.IngressBuilder;
 import io.fabric8.kubernetes.api.model.extensions.IngressRuleBuilder;
 import io.fabric8.openshift.api.model.Route;
 import io.fabric8.openshift.api.model.RouteBuilder;
+import io.radanalytics.operator.common.RenderCache;
+import io.radanalytics.operator.resource.FingerprintHelper;
+import io.radanalytics.operator.resource.OwnerReferenceHelper;
 import io.radanalytics.types.SparkConfiguration;
 import io.radanalytics.types.SparkHistoryServer;
 
@@ -24,13 +27,29 @@ public class KubernetesHistoryServerDeployer {
 
     private String entityName;
     private String prefix;
+    private final RenderCache<SparkHistoryServer> renders;
 
     KubernetesHistoryServerDeployer(String entityName, String prefix) {
         this.entityName = entityName;
         this.prefix = prefix;
+        this.renders = new RenderCache<>(entityName);
     }
 
-    public KubernetesResourceList getResourceList(SparkHistoryServer hs, String namespace, boolean isOpenshift) {
+    /**
+     * @param hs          history server to render
+     * @param namespace   namespace of the history server
+     * @param isOpenshift whether it's exposed by a Route instead of an Ingress
+     * @param owner       owner reference to the custom resource or null in the config map mode
+     * @return rendered and stamped resources, they may be shared with other callers, so they must not be modified
+     */
+    public KubernetesResourceList getResourceList(SparkHistoryServer hs, String namespace, boolean isOpenshift,
+                                                  OwnerReference owner) {
+        List<Object> env = Arrays.asList(namespace, isOpenshift, getDefaultSparkImage(), owner);
+        return renders.get(hs, env, h -> render(h, namespace, isOpenshift, owner));
+    }
+
+    private KubernetesResourceList render(SparkHistoryServer hs, String namespace, boolean isOpenshift,
+                                          OwnerReference owner) {
         checkForInjectionVulnerabilities(hs, namespace);
         List<HasMetadata> resources = new ArrayList<>();
 
@@ -69,6 +88,8 @@ public class KubernetesHistoryServerDeployer {
         }
 
         KubernetesList k8sResources = new KubernetesListBuilder().withItems(resources).build();
+        OwnerReferenceHelper.setOwner(k8sResources, owner);
+        FingerprintHelper.stamp(k8sResources, prefix);
         return k8sResources;
     }
 
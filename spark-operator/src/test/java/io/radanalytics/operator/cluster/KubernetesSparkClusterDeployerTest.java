@@ -0,0 +1,105 @@
+package io.radanalytics.operator.cluster;
+
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.api.model.ReplicationController;
+import io.radanalytics.operator.resource.FingerprintHelper;
+import io.radanalytics.operator.resource.HasDataHelper;
+import io.radanalytics.types.SparkCluster;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class KubernetesSparkClusterDeployerTest {
+
+    private static final String PREFIX = "radanalytics.io/";
+
+    private static final String CLUSTER =
+            "sparkConfiguration:\n" +
+            "- name: spark.executor.memory\n" +
+            "  value: 1g\n" +
+            "mavenDependencies:\n" +
+            "- com.example:example:1.0\n" +
+            "historyServer:\n" +
+            "  type: remoteStorage\n" +
+            "  remoteURI: s3a://spark-events/\n";
+
+    private final KubernetesSparkClusterDeployer deployer =
+            new KubernetesSparkClusterDeployer("SparkCluster", PREFIX, "test", new ConfigMapLookup());
+
+    @Test
+    public void testRenderingDoesNotModifyTheCluster() {
+        SparkCluster cluster = cluster();
+        RenderEnvironment env = deployer.environment(cluster, null);
+        List<String> first = fingerprints(deployer.render(cluster, env));
+        List<String> second = fingerprints(deployer.render(cluster, env));
+
+        assertEquals(1, cluster.getSparkConfiguration().size());
+        assertTrue(cluster.getMaster() == null || cluster.getMaster().getCommand().isEmpty());
+        assertEquals("the same spec and environment must give the same resources", first, second);
+
+        ReplicationController worker = (ReplicationController) deployer.render(cluster, env).getItems().get(1);
+        String args = worker.getSpec().getTemplate().getSpec().getInitContainers().stream()
+                .filter(c -> "override-config".equals(c.getName()))
+                .findFirst().get().getArgs().get(0);
+        assertEquals("no duplicated entries", args.indexOf("spark.jars.ivy"), args.lastIndexOf("spark.jars.ivy"));
+        assertTrue(args.contains("spark.eventLog.dir s3a://spark-events/"));
+    }
+
+    /**
+     * The rendering has no lock, so the same cluster rendered from several threads at once must give the same
+     * resources as a single-threaded rendering and must not modify the cluster.
+     */
+    @Test
+    public void testConcurrentRenderingGivesTheSameResources() throws Exception {
+        SparkCluster cluster = cluster();
+        RenderEnvironment env = deployer.environment(cluster, null);
+        List<String> expected = fingerprints(deployer.render(cluster, env));
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<List<String>>>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    List<List<String>> results = new ArrayList<>();
+                    for (int i = 0; i < 50; i++) {
+                        results.add(fingerprints(deployer.render(cluster, env)));
+                    }
+                    return results;
+                }));
+            }
+            start.countDown();
+            for (Future<List<List<String>>> future : futures) {
+                for (List<String> result : future.get(30, TimeUnit.SECONDS)) {
+                    assertEquals(expected, result);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, cluster.getSparkConfiguration().size());
+    }
+
+    private static SparkCluster cluster() {
+        SparkCluster cluster = HasDataHelper.parseYaml(SparkCluster.class, CLUSTER, "my-cluster");
+        cluster.setNamespace("test");
+        return cluster;
+    }
+
+    private static List<String> fingerprints(KubernetesResourceList<? extends HasMetadata> list) {
+        return list.getItems().stream()
+                .map(r -> FingerprintHelper.getFingerprint(r, PREFIX).orElse(null))
+                .collect(Collectors.toList());
+    }
+}
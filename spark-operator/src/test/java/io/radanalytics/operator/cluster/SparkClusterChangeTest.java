@@ -0,0 +1,107 @@
+package io.radanalytics.operator.cluster;
+
+import io.radanalytics.operator.resource.HasDataHelper;
+import io.radanalytics.types.Env;
+import io.radanalytics.types.Master;
+import io.radanalytics.types.SparkCluster;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+public class SparkClusterChangeTest {
+
+    private static final String CLUSTER =
+            "worker:\n" +
+            "  instances: 2\n" +
+            "sparkConfiguration:\n" +
+            "- name: spark.executor.memory\n" +
+            "  value: 1g\n";
+
+    @Test
+    public void testNoChange() {
+        SparkClusterChange change = SparkClusterChange.of(cluster(), cluster());
+        assertEquals(SparkClusterChange.Type.NONE, change.getType());
+        assertTrue(change.getPaths().isEmpty());
+    }
+
+    @Test
+    public void testMissingMasterIsTheDefaultOne() {
+        SparkCluster withMaster = cluster();
+        withMaster.setMaster(new Master());
+        assertEquals(SparkClusterChange.Type.NONE, SparkClusterChange.of(cluster(), withMaster).getType());
+    }
+
+    @Test
+    public void testScale() {
+        SparkCluster desired = cluster();
+        desired.getWorker().setInstances(5);
+        SparkClusterChange change = SparkClusterChange.of(cluster(), desired);
+        assertEquals(SparkClusterChange.Type.SCALE, change.getType());
+        assertEquals(Collections.singleton("worker.instances"), change.getPaths());
+    }
+
+    @Test
+    public void testLabels() {
+        SparkCluster desired = cluster();
+        desired.getWorker().setInstances(5);
+        desired.setLabels(new HashMap<>(Collections.singletonMap("team", "data")));
+        SparkClusterChange change = SparkClusterChange.of(cluster(), desired);
+        assertEquals(SparkClusterChange.Type.METADATA, change.getType());
+        assertFalse(change.getType().restartsMaster());
+        assertFalse(change.getType().restartsWorkers());
+    }
+
+    @Test
+    public void testWorker() {
+        SparkCluster desired = cluster();
+        desired.getWorker().setMemory("2g");
+        SparkClusterChange change = SparkClusterChange.of(cluster(), desired);
+        assertEquals(SparkClusterChange.Type.WORKER, change.getType());
+        assertFalse(change.getType().restartsMaster());
+        assertTrue(change.getType().restartsWorkers());
+    }
+
+    @Test
+    public void testConfig() {
+        SparkCluster desired = cluster();
+        desired.getSparkConfiguration().get(0).setValue("2g");
+        assertEquals(SparkClusterChange.Type.CONFIG, SparkClusterChange.of(cluster(), desired).getType());
+
+        desired = cluster();
+        Env env = new Env();
+        env.setName("FOO");
+        env.setValue("bar");
+        desired.getEnv().add(env);
+        assertEquals(SparkClusterChange.Type.CONFIG, SparkClusterChange.of(cluster(), desired).getType());
+    }
+
+    @Test
+    public void testMaster() {
+        SparkCluster desired = cluster();
+        desired.getWorker().setMemory("2g");
+        desired.setCustomImage("quay.io/example/spark:latest");
+        SparkClusterChange change = SparkClusterChange.of(cluster(), desired);
+        assertEquals(SparkClusterChange.Type.MASTER, change.getType());
+        assertTrue(change.getPaths().contains("customImage"));
+        assertTrue(change.getPaths().contains("worker.memory"));
+    }
+
+    @Test
+    public void testClustersAreNotModified() {
+        SparkCluster existing = new SparkCluster();
+        existing.setName("my-cluster");
+        existing.setNamespace("test");
+        SparkClusterChange.of(existing, cluster());
+        assertNull(existing.getMaster());
+        assertNull(existing.getWorker());
+    }
+
+    private static SparkCluster cluster() {
+        SparkCluster cluster = HasDataHelper.parseYaml(SparkCluster.class, CLUSTER, "my-cluster");
+        cluster.setNamespace("test");
+        return cluster;
+    }
+}
@@ -0,0 +1,78 @@
+package io.radanalytics.operator.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.radanalytics.operator.resource.HasDataHelper;
+import io.radanalytics.types.SparkCluster;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SparkClusterCopyTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String CLUSTER =
+            "worker:\n" +
+            "  instances: 3\n" +
+            "  labels:\n" +
+            "    team: data\n" +
+            "  command:\n" +
+            "  - /entrypoint\n" +
+            "sparkConfiguration:\n" +
+            "- name: spark.executor.memory\n" +
+            "  value: 1g\n" +
+            "env:\n" +
+            "- name: FOO\n" +
+            "  value: bar\n" +
+            "nodeTolerations:\n" +
+            "- key: dedicated\n" +
+            "  operator: Equal\n" +
+            "  value: spark\n" +
+            "  effect: NoSchedule\n" +
+            "historyServer:\n" +
+            "  type: remoteStorage\n" +
+            "  remoteURI: s3a://spark-events/\n";
+
+    @Test
+    public void testCopyIsEqual() {
+        SparkCluster cluster = cluster();
+        SparkCluster copy = new SparkCluster(cluster);
+
+        assertEquals(cluster, copy);
+        assertEquals(cluster.getName(), copy.getName());
+        assertEquals(cluster.getNamespace(), copy.getNamespace());
+        assertEquals(jsonCopy(cluster), copy);
+    }
+
+    @Test
+    public void testCopyIsDeep() {
+        SparkCluster cluster = cluster();
+        SparkCluster copy = new SparkCluster(cluster);
+
+        copy.getWorker().setInstances(5);
+        copy.getWorker().getLabels().put("team", "ops");
+        copy.getWorker().getCommand().add("--verbose");
+        copy.getSparkConfiguration().get(0).setValue("2g");
+        copy.getEnv().clear();
+        copy.getHistoryServer().setRemoteURI("hdfs://spark-events/");
+
+        assertEquals(cluster(), cluster);
+        assertNotEquals(cluster, copy);
+    }
+
+    private static SparkCluster jsonCopy(SparkCluster cluster) {
+        try {
+            return MAPPER.readValue(MAPPER.writeValueAsBytes(cluster), SparkCluster.class);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static SparkCluster cluster() {
+        SparkCluster cluster = HasDataHelper.parseYaml(SparkCluster.class, CLUSTER, "my-cluster");
+        cluster.setNamespace("test");
+        return cluster;
+    }
+}